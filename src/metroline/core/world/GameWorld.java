@@ -62,27 +62,12 @@ public class GameWorld extends World {
     }
 
     public void generateWorld(int worldColor) {
-        initWorldGrid();
         MetroLogger.logInfo("Generating game world...");
-        worldGrid = new WorldTile[width*height];
-        gameGrid = new GameTile[width*height];
-        gameplayGrid = new GameTile[width*height];  // ← ДОБАВИТЬ ЭТУ СТРОКУ
-
-        WorldTile worldTile;
-        GameTile gameTile;
-
-
-        for (short y = 0; y < height; y++) {
-            for (short x = 0; x < width; x++) {
-                worldTile = new WorldTile(x, y, 0f, false, 0,0, 0x6E6E6E);
-                setWorldTile(x, y, worldTile);
-                worldTile.setBaseTileColor(worldColor);
-
-                gameTile = new GameTile(x, y);
-                setGameTile(x, y, gameTile);
+        // Terrain is primitive-backed: zeroed arrays are the default land tile
+        initWorldGrid();
+        WorldTile.setStaticBaseTileColor(worldColor);
 
-            }
-        }
+        initGameGrid();
     }
 
     public void update() {
@@ -90,20 +75,15 @@ public class GameWorld extends World {
     }
 
 
-    public StationLabel getLabelForStation(Station station) {
-        for (StationLabel stationLabel : stationLabels) {
-            if (stationLabel.getParentGameObject() == station) {
-                return stationLabel;
-            }
-        }
-        return null;
-    }
-
-
-
     public void setLegendWindow(LinesLegendWindow legendWindow) {
         this.legendWindow = legendWindow;
     }
+    @Override
+    protected void onBatchApplied() {
+        super.onBatchApplied();
+        updateLegendWindow();
+    }
+
     public void updateLegendWindow() {
         if (screen instanceof GameWorldScreen) {
             GameWorldScreen gameScreen = (GameWorldScreen) screen;
@@ -217,47 +197,45 @@ public class GameWorld extends World {
     }
 
     public void updateConnectedTunnels(Station station) {
-        List<Tunnel> tunnelsToUpdate = new ArrayList<>(this.getTunnels());
+        List<Tunnel> tunnelsToUpdate = new ArrayList<>(getTunnelsForStation(station));
 
         for (Tunnel tunnel : tunnelsToUpdate) {
-            if (tunnel.getStart() == station || tunnel.getEnd() == station) {
-                Station otherEnd = (tunnel.getStart() == station) ? tunnel.getEnd() : tunnel.getStart();
-
-                // Туннель может начать строиться только если:
-                // 1. Обе станции в BUILDING ИЛИ
-                // 2. Одна в BUILDING, а другая уже построена (не PLANNED и не BUILDING)
-                boolean canStartBuilding = false;
-
-                // Обе станции в BUILDING
-                boolean bothBuilding = station.getType() == StationType.BUILDING &&
-                        otherEnd.getType() == StationType.BUILDING;
-
-                // Одна в BUILDING, другая уже построена
-                boolean oneBuildingOneBuilt =
-                        (station.getType() == StationType.BUILDING &&
-                                otherEnd.getType() != StationType.PLANNED &&
-                                otherEnd.getType() != StationType.BUILDING) ||
-                                (otherEnd.getType() == StationType.BUILDING &&
-                                        station.getType() != StationType.PLANNED &&
-                                        station.getType() != StationType.BUILDING);
-
-                if ((bothBuilding || oneBuildingOneBuilt) &&
-                        tunnel.getType() == TunnelType.PLANNED) {
-
-                        tunnel.setType(TunnelType.BUILDING);
-                        tunnel.getWorld().addTunnel(tunnel);
-                        canStartBuilding = true;
+            Station otherEnd = (tunnel.getStart() == station) ? tunnel.getEnd() : tunnel.getStart();
 
-                }
+            // Туннель может начать строиться только если:
+            // 1. Обе станции в BUILDING ИЛИ
+            // 2. Одна в BUILDING, а другая уже построена (не PLANNED и не BUILDING)
+            boolean canStartBuilding = false;
 
-                if (!canStartBuilding &&
-                        station.getType() != StationType.PLANNED &&
-                        station.getType() != StationType.BUILDING &&
-                        otherEnd.getType() != StationType.PLANNED &&
-                        otherEnd.getType() != StationType.BUILDING) {
+            // Обе станции в BUILDING
+            boolean bothBuilding = station.getType() == StationType.BUILDING &&
+                    otherEnd.getType() == StationType.BUILDING;
 
-                    tunnel.setType(TunnelType.ACTIVE);
-                }
+            // Одна в BUILDING, другая уже построена
+            boolean oneBuildingOneBuilt =
+                    (station.getType() == StationType.BUILDING &&
+                            otherEnd.getType() != StationType.PLANNED &&
+                            otherEnd.getType() != StationType.BUILDING) ||
+                            (otherEnd.getType() == StationType.BUILDING &&
+                                    station.getType() != StationType.PLANNED &&
+                                    station.getType() != StationType.BUILDING);
+
+            if ((bothBuilding || oneBuildingOneBuilt) &&
+                    tunnel.getType() == TunnelType.PLANNED) {
+
+                    tunnel.setType(TunnelType.BUILDING);
+                    tunnel.getWorld().addTunnel(tunnel);
+                    canStartBuilding = true;
+
+            }
+
+            if (!canStartBuilding &&
+                    station.getType() != StationType.PLANNED &&
+                    station.getType() != StationType.BUILDING &&
+                    otherEnd.getType() != StationType.PLANNED &&
+                    otherEnd.getType() != StationType.BUILDING) {
+
+                tunnel.setType(TunnelType.ACTIVE);
             }
         }
     }
@@ -284,8 +262,9 @@ public class GameWorld extends World {
 
         // Дополнительно проверяем соседей для восстановления TRANSFER станций
         for (Station station : this.stations) {
-            station.updateType();
+            markStationDirty(station);
         }
+        flushDirtyStations();
     }
 
 
@@ -320,7 +299,7 @@ public class GameWorld extends World {
             this.width = loadedWorld.width;
             this.height = loadedWorld.height;
 
-            this.worldGrid = loadedWorld.worldGrid; // Ссылка
+            this.terrain = loadedWorld.terrain; // Ссылка
             this.gameGrid = loadedWorld.gameGrid;
             this.gameplayGrid = loadedWorld.gameplayGrid;  // Ссылка
 
@@ -330,7 +309,10 @@ public class GameWorld extends World {
             this.stationLabels = loadedWorld.stationLabels;       // Ссылка
             this.rivers = loadedWorld.rivers;
             this.roundStationsEnabled = loadedWorld.roundStationsEnabled;
+            setSeed(loadedWorld.getSeed());
             this.customLineNames = new HashMap<>(loadedWorld.customLineNames);
+            adoptObjects();
+            rebuildIndexes();
             restoreStationConnections();
 
 
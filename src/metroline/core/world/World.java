@@ -3,7 +3,15 @@ package metroline.core.world;
 import metroline.input.selection.Selectable;
 import metroline.input.selection.SelectionManager;
 import metroline.objects.gameobjects.*;
+import metroline.core.world.generation.TerrainGenerator;
+import metroline.core.world.index.GameObjectRegistry;
+import metroline.core.world.index.LabelRegistry;
+import metroline.core.world.index.PathTileIndex;
+import metroline.core.world.index.StationTunnelIndex;
+import metroline.core.world.index.WorldViewIndex;
 import metroline.core.world.tiles.GameTile;
+import metroline.core.world.tiles.GameTileGrid;
+import metroline.core.world.tiles.TerrainLayer;
 import metroline.core.world.tiles.WorldTile;
 import metroline.objects.enums.Direction;
 import metroline.objects.gameobjects.StationLabel;
@@ -27,13 +35,15 @@ public class World implements Serializable {
     public static final long serialVersionUID = 1L;
     public static final String SAVE_FOLDER = "saves";
     public String SAVE_FILE = "game_save.metro";;
-    public Random rand = new Random();
+    // Сид процедурной генерации, один и тот же сид дает один и тот же рельеф
+    protected long seed = new Random().nextLong();
+    public Random rand = new Random(seed);
     protected short width, height;
 
-    //  public WorldTile[][] worldGrid;
-    public WorldTile[] worldGrid;
-    public GameTile[] gameGrid;
-    public GameTile[] gameplayGrid;
+    public TerrainLayer terrain;
+    // Sparse chunked grids, chunks are allocated on first write
+    public GameTileGrid gameGrid;
+    public GameTileGrid gameplayGrid;
 
     public java.util.List<Station> stations = new ArrayList<>();
     public java.util.List<Tunnel> tunnels = new ArrayList<>();
@@ -44,6 +54,23 @@ public class World implements Serializable {
     public transient WorldScreen screen;
     public boolean roundStationsEnabled = false;
 
+    // Spatial indexes tile -> tunnels / rivers, rebuilt lazily after loading
+    private transient PathTileIndex<Tunnel> tunnelIndex;
+    private transient PathTileIndex<River> riverIndex;
+    // Parent object -> labels, identity keyed
+    private transient LabelRegistry labelRegistry;
+    // uniqueId -> object
+    private transient GameObjectRegistry objectRegistry;
+    // Station -> incident tunnels
+    private transient StationTunnelIndex stationTunnels;
+    // Uniform grid over drawable object bounds, used for viewport culling
+    private transient WorldViewIndex viewIndex;
+    // Stations whose type must be recomputed, drained once per frame/command
+    private transient List<Station> dirtyStations;
+    private transient Set<Station> dirtyStationSet;
+    // Edit counters per drawn layer, compared by the screen to invalidate its cached layers
+    private transient int[] layerRevisions;
+
 
     public World() {
         super();
@@ -65,44 +92,50 @@ public class World implements Serializable {
 
     public void setRoundStationsEnabled(boolean enabled) {
         this.roundStationsEnabled = enabled;
+        markLayerChanged(WorldLayer.STATIONS);
     }
 
 
     public void initWorldGrid() {
-        worldGrid = new WorldTile[width * height];
-        for (short y = 0; y < height; y++) {
-            for (short x = 0; x < width; x++) {
-                int index = y * width + x;
-                worldGrid[index] = new WorldTile(x, y);
-            }
-        }
+        terrain = new TerrainLayer(width, height);
     }
     public void initGameGrid() {
-        gameGrid = new GameTile[width * height];
-        for (short y = 0; y < height; y++) {
-            for (short x = 0; x < width; x++) {
-                int index = y * width + x;
-                gameGrid[index] = new GameTile(x, y);
-            }
-        }
+        gameGrid = new GameTileGrid(width, height);
+        gameplayGrid = new GameTileGrid(width, height);
     }
 
     public StationLabel getLabelForGameObject(GameObject station) {
-        for (StationLabel stationLabel : stationLabels) {
-            if (stationLabel.getParentGameObject() == station) {
-                return stationLabel;
-            }
-        }
-        return null;
+        return getLabelRegistry().getFirst(station);
     }
 
     public StationLabel getLabelForStation(Station station) {
-        for (StationLabel stationLabel : stationLabels) {
-            if (stationLabel.getParentGameObject() == station) {
-                return stationLabel;
-            }
+        return getLabelRegistry().getFirst(station);
+    }
+
+    /**
+     * Gets the parent object -> labels registry, building it on first use
+     * @return Label registry
+     */
+    public LabelRegistry getLabelRegistry() {
+        if (labelRegistry == null) {
+            labelRegistry = new LabelRegistry(stationLabels);
         }
-        return null;
+        return labelRegistry;
+    }
+
+    /**
+     * Called by a label after its parent object was replaced
+     * @param stationLabel Label whose parent changed
+     * @param previousParent Parent it was registered under
+     */
+    public void onLabelParentChanged(StationLabel stationLabel, GameObject previousParent) {
+        if (labelRegistry != null && labelRegistry.remove(stationLabel, previousParent)) {
+            labelRegistry.add(stationLabel);
+        }
+        if (viewIndex != null && viewIndex.getLabels().contains(stationLabel)) {
+            viewIndex.update(stationLabel);
+        }
+        markLayerChanged(WorldLayer.LABELS);
     }
     public PathPoint findFreePositionNear(int x, int y, String name) {
         // Сортируем направления по приоритету (включая диагонали)
@@ -114,8 +147,6 @@ public class World implements Serializable {
         for (Direction dir : priorityDirections) {
             int nx = x + dir.getDx();
             int ny = y + dir.getDy();
-            GameObject content = getGameTile(nx, ny).getContent();
-
             if (nx >= 0 && nx < width && ny >= 0 && ny < height &&
                     getStationAt(nx, ny) == null && getLabelAt(nx, ny) == null) {
 
@@ -163,19 +194,31 @@ public class World implements Serializable {
      */
     public void addLabel(StationLabel stationLabel) {
         stationLabels.add(stationLabel);
-        getGameTile(stationLabel.getX(), stationLabel.getY()).setContent(stationLabel);
+        getLabelRegistry().add(stationLabel);
+        getObjectRegistry().register(stationLabel);
+        if (viewIndex != null) viewIndex.update(stationLabel);
+        getOrCreateGameTile(stationLabel.getX(), stationLabel.getY()).setContent(stationLabel);
+        markLayerChanged(WorldLayer.LABELS);
 
     }
     public void removeLabelForStation(Station station) {
         StationLabel label = getLabelForStation(station);
         if (label != null) {
             stationLabels.remove(label);
+            getLabelRegistry().remove(label);
+            getObjectRegistry().unregister(label);
+            if (viewIndex != null) viewIndex.getLabels().remove(label);
+            markLayerChanged(WorldLayer.LABELS);
         }
     }
     public void removeLabel(StationLabel stationLabel) {
         stationLabels.remove(stationLabel);
+        getLabelRegistry().remove(stationLabel);
+        getObjectRegistry().unregister(stationLabel);
+        if (viewIndex != null) viewIndex.getLabels().remove(stationLabel);
+        markLayerChanged(WorldLayer.LABELS);
 
-        getGameTile(stationLabel.getX(), stationLabel.getY()).setContent(null);
+        clearGameTile(stationLabel.getX(), stationLabel.getY());
 
     }
 
@@ -187,19 +230,13 @@ public class World implements Serializable {
      */
     public StationLabel getLabelAt(int x, int y) {
         if (x < 0 || x >= width || y < 0 || y >= height) return null;
-        GameObject obj = getGameTile(x, y).getContent();
+        GameObject obj = gameGrid.getContent(x, y);
         return obj instanceof StationLabel ? (StationLabel)obj : null;
     }
 
     public List<StationLabel> getLabelsForStation(Station station) {
         // Возвращает метки для конкретной станции
-        List<StationLabel> stationStationLabels = new ArrayList<>();
-        for (StationLabel stationLabel : getLabels()) {
-            if (stationLabel.getParentGameObject().equals(station)) {
-                stationStationLabels.add(stationLabel);
-            }
-        }
-        return stationStationLabels;
+        return new ArrayList<>(getLabelRegistry().getAll(station));
     }
 
     /******************
@@ -217,6 +254,10 @@ public class World implements Serializable {
      */
     public void addRiver(River river) {
         rivers.add(river);
+        getRiverIndex().add(river);
+        getObjectRegistry().register(river);
+        if (viewIndex != null) viewIndex.update(river);
+        markLayerChanged(WorldLayer.RIVERS);
     }
 
     /**
@@ -225,6 +266,10 @@ public class World implements Serializable {
      */
     public void removeRiver(River river) {
         rivers.remove(river);
+        getRiverIndex().remove(river);
+        getObjectRegistry().unregister(river);
+        if (viewIndex != null) viewIndex.getRivers().remove(river);
+        markLayerChanged(WorldLayer.RIVERS);
     }
 
     /**
@@ -235,14 +280,44 @@ public class World implements Serializable {
      */
 
     public River getRiverAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return null;
+        return getRiverIndex().getFirstAt(x, y);
+    }
+
+    /**
+     * Gets the tile -> river occupancy index over calculated river paths
+     * @return River index for the current world size
+     */
+    public PathTileIndex<River> getRiverIndex() {
+        if (riverIndex == null || riverIndex.getWidth() != width || riverIndex.getHeight() != height) {
+            rebuildRiverIndex();
+        }
+        return riverIndex;
+    }
+
+    private void rebuildRiverIndex() {
+        int expectedTiles = 0;
         for (River river : rivers) {
-            for (PathPoint point : river.getCalculatedPath()) { // FIX: was getPath()
-                if (point.getX() == x && point.getY() == y) {
-                    return river;
-                }
-            }
+            expectedTiles += river.getCalculatedPath().size();
         }
-        return null;
+        riverIndex = new PathTileIndex<>(width, height, expectedTiles, River::getCalculatedPath);
+        for (River river : rivers) {
+            riverIndex.add(river);
+        }
+    }
+
+    /**
+     * Called by a river after its calculated path was rebuilt
+     * @param river River whose path changed
+     */
+    public void onRiverPathChanged(River river) {
+        if (riverIndex != null) {
+            riverIndex.update(river);
+        }
+        if (viewIndex != null && viewIndex.getRivers().contains(river)) {
+            viewIndex.update(river);
+        }
+        markLayerChanged(WorldLayer.RIVERS);
     }
     /**
      * Gets all river points from gameGrid
@@ -250,12 +325,11 @@ public class World implements Serializable {
      */
     public List<RiverPoint> getRiverPoints() {
         List<RiverPoint> points = new ArrayList<>();
-        for (int i = 0; i < gameGrid.length; i++) {
-            GameObject content = gameGrid[i].getContent();
-            if (content instanceof RiverPoint) {
-                points.add((RiverPoint) content);
+        gameGrid.forEachTile(tile -> {
+            if (tile.getContent() instanceof RiverPoint) {
+                points.add((RiverPoint) tile.getContent());
             }
-        }
+        });
         return points;
     }
 
@@ -269,14 +343,15 @@ public class World implements Serializable {
             return;
         }
 
-        GameTile tile = getGameTile(point.getX(), point.getY());
-        if (tile.getContent() != null) {
+        if (gameGrid.getContent(point.getX(), point.getY()) != null) {
             MetroLogger.logWarning(" Cell occupied at: " + point.getX() + ", " + point.getY());
             return;
         }
 
-        tile.setContent(point);
+        gameGrid.getOrCreate(point.getX(), point.getY()).setContent(point);
         point.setWorld(this);
+        getObjectRegistry().register(point);
+        markLayerChanged(WorldLayer.RIVERS);
        // MetroLogger.logInfo(" Added at: " + point.getX() + ", " + point.getY());
     }
 
@@ -285,9 +360,9 @@ public class World implements Serializable {
      * @param point RiverPoint to remove
      */
     public void removeRiverPoint(RiverPoint point) {
-        GameTile tile = getGameTile(point.getX(), point.getY());
-        if (tile != null && tile.getContent() == point) {
-            tile.setContent(null);
+        if (gameGrid.clear(point.getX(), point.getY(), point)) {
+            getObjectRegistry().unregister(point);
+            markLayerChanged(WorldLayer.RIVERS);
             MetroLogger.logInfo("[World::removeRiverPoint] Removed from: " + point.getX() + ", " + point.getY());
         }
     }
@@ -303,8 +378,7 @@ public class World implements Serializable {
             return null;
         }
 
-        GameTile tile = getGameTile(x, y);
-        GameObject content = tile.getContent();
+        GameObject content = gameGrid.getContent(x, y);
 
         if (content instanceof RiverPoint) {
             return (RiverPoint) content;
@@ -320,12 +394,30 @@ public class World implements Serializable {
      * @param station Station to add
      */
     public void addStation(Station station) {
-        if (getGameTile(station.getX(), station.getY()).getContent() != null) {
-            return;
+        if (insertStation(station)) {
+            placeStationLabel(station);
+        }
+    }
+
+    /**
+     * Puts a station into the list, the grid and the indexes without placing its label
+     * @param station Station to insert
+     * @return False if the tile is occupied
+     */
+    boolean insertStation(Station station) {
+        if (gameGrid.getContent(station.getX(), station.getY()) != null) {
+            return false;
         }
         stations.add(station);
-        getGameTile(station.getX(), station.getY()).setContent(station);
+        getObjectRegistry().register(station);
+        if (viewIndex != null) viewIndex.update(station);
+        getOrCreateGameTile(station.getX(), station.getY()).setContent(station);
+        markStationAreaDirty(station.getX(), station.getY());
+        markLayerChanged(WorldLayer.STATIONS);
+        return true;
+    }
 
+    void placeStationLabel(Station station) {
         // Передаем имя станции для выбора оптимальной позиции
         PathPoint labelPos = findFreePositionNear(station.getX(), station.getY(), station.getName());
 
@@ -334,7 +426,6 @@ public class World implements Serializable {
             station.setLabel(stationLabel);
             addLabel(stationLabel);
         }
-
     }
 
     /**
@@ -367,12 +458,28 @@ public class World implements Serializable {
             station.disconnect(connectedStation);
         }
         stations.remove(station);
+        getObjectRegistry().unregister(station);
+        if (viewIndex != null) viewIndex.getStations().remove(station);
+        markLayerChanged(WorldLayer.STATIONS);
         this.removeLabelForStation(station);
         // Удаляем метку станции
-        getGameTile(station.getX(), station.getY()).setContent(null);
+        clearGameTile(station.getX(), station.getY());
+        markStationAreaDirty(station.getX(), station.getY());
 
         // Remove any tunnels connected to this station
-        tunnels.removeIf(t -> t.getStart() == station || t.getEnd() == station);
+        List<Tunnel> incident = new ArrayList<>(getStationTunnelIndex().getTunnels(station));
+        if (!incident.isEmpty()) {
+            Set<Tunnel> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            removed.addAll(incident);
+            tunnels.removeIf(removed::contains);
+            for (Tunnel t : incident) {
+                getTunnelIndex().remove(t);
+                getObjectRegistry().unregister(t);
+                stationTunnels.remove(t);
+                if (viewIndex != null) viewIndex.getTunnels().remove(t);
+                markLayerChanged(WorldLayer.TUNNELS);
+            }
+        }
 
     }
     /**
@@ -383,12 +490,207 @@ public class World implements Serializable {
      */
     public Station getStationAt(int x, int y) {
         if (x < 0 || x >= width || y < 0 || y >= height) return null;
-        GameObject obj = getGameTile(x, y).getContent();
+        GameObject obj = gameGrid.getContent(x, y);
         return obj instanceof Station ? (Station)obj : null;
     }
 
 
 
+    /******************
+     * STATION TYPES
+     ******************/
+    /**
+     * Queues a station for type recomputation on the next {@link #flushDirtyStations()}
+     * @param station Station whose connections or neighbours changed
+     */
+    public void markStationDirty(Station station) {
+        if (station == null) return;
+        if (dirtyStations == null) {
+            dirtyStations = new ArrayList<>();
+            dirtyStationSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+        if (dirtyStationSet.add(station)) {
+            dirtyStations.add(station);
+        }
+    }
+
+    /**
+     * Queues the station at the tile and its 8 neighbours (neighbours decide TRANSFER)
+     * @param x X coordinate of the changed tile
+     * @param y Y coordinate of the changed tile
+     */
+    public void markStationAreaDirty(int x, int y) {
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                markStationDirty(getStationAt(x + dx, y + dy));
+            }
+        }
+    }
+
+    /**
+     * Recomputes TRANSFER/TERMINAL/TRANSIT types of all queued stations in one pass
+     * @return Number of stations recomputed
+     */
+    public int flushDirtyStations() {
+        int processed = recomputeDirtyStations();
+        if (processed > 0) {
+            // Пересчет мог сменить тип (и вид) станций
+            markLayerChanged(WorldLayer.STATIONS);
+        }
+        return processed;
+    }
+
+    /**
+     * Same as {@link #flushDirtyStations()}, for the frame being painted: the layer revision
+     * changes but no repaint is scheduled, because the current frame draws the result
+     * @return Number of stations recomputed
+     */
+    public int flushDirtyStationsInPaint() {
+        int processed = recomputeDirtyStations();
+        if (processed > 0) {
+            getLayerRevisions()[WorldLayer.STATIONS.ordinal()]++;
+        }
+        return processed;
+    }
+
+    private int recomputeDirtyStations() {
+        if (dirtyStations == null || dirtyStations.isEmpty()) return 0;
+        // updateType может пометить новые станции - обрабатываем до опустошения
+        int processed = 0;
+        while (!dirtyStations.isEmpty()) {
+            List<Station> batch = dirtyStations;
+            dirtyStations = new ArrayList<>();
+            dirtyStationSet.clear();
+            for (Station station : batch) {
+                if (station.getWorld() != null) {
+                    station.updateType();
+                }
+            }
+            processed += batch.size();
+        }
+        return processed;
+    }
+
+    public boolean hasDirtyStations() {
+        return dirtyStations != null && !dirtyStations.isEmpty();
+    }
+
+    /******************
+     * BATCH
+     ******************/
+    /**
+     * Applies many inserts and removes in one pass.
+     * Removals go first (incident tunnels and labels of removed stations included), then stations,
+     * then their labels, then tunnels. Station types, the layer revisions and the legend are
+     * refreshed once and the screen repaints once; the terrain caches are left alone.
+     * Inserts are edits: labels get free positions, tunnels are recreated and connect their stations.
+     * Loaders restoring saved objects as they were use {@link #registerObject} and {@link #rebuildIndexes}.
+     * @param body Fills the batch
+     */
+    public void batch(java.util.function.Consumer<WorldBatch> body) {
+        WorldBatch batch = new WorldBatch();
+        body.accept(batch);
+        if (batch.isEmpty()) return;
+
+        applyRemovals(batch);
+
+        List<Station> inserted = new ArrayList<>(batch.stationsToAdd.size());
+        for (Station station : batch.stationsToAdd) {
+            if (insertStation(station)) {
+                inserted.add(station);
+            }
+        }
+        // Метки ставятся после всех станций, чтобы не занять клетку будущей станции
+        for (Station station : inserted) {
+            placeStationLabel(station);
+        }
+        for (Tunnel tunnel : batch.tunnelsToAdd) {
+            insertTunnel(tunnel);
+        }
+
+        flushDirtyStations();
+        markAllLayersChanged();
+        onBatchApplied();
+    }
+
+    private void applyRemovals(WorldBatch batch) {
+        Set<Station> removedStations = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Tunnel> removedTunnels = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<StationLabel> removedLabels = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        removedStations.addAll(batch.stationsToRemove);
+        removedTunnels.addAll(batch.tunnelsToRemove);
+        removedLabels.addAll(batch.labelsToRemove);
+        for (Station station : removedStations) {
+            removedTunnels.addAll(getTunnelsForStation(station));
+            removedLabels.addAll(getLabelRegistry().getAll(station));
+            if (station.getLabel() != null) {
+                removedLabels.add(station.getLabel());
+            }
+        }
+        if (removedStations.isEmpty() && removedTunnels.isEmpty() && removedLabels.isEmpty()) return;
+
+        if (GameWorldScreen.INSTANCE != null) {
+            SelectionManager selectionManager = SelectionManager.getInstance();
+            Selectable selected = selectionManager.getSelected();
+            if (selected != null && (removedStations.contains(selected) || removedTunnels.contains(selected)
+                    || removedLabels.contains(selected))) {
+                selectionManager.deselect();
+            }
+        }
+
+        for (Tunnel tunnel : removedTunnels) {
+            tunnel.getStart().disconnect(tunnel.getEnd());
+        }
+        for (Station station : removedStations) {
+            for (Station connectedStation : new ArrayList<>(station.getConnections().values())) {
+                station.disconnect(connectedStation);
+            }
+        }
+
+        if (!removedTunnels.isEmpty()) {
+            tunnels.removeIf(removedTunnels::contains);
+            for (Tunnel tunnel : removedTunnels) {
+                getTunnelIndex().remove(tunnel);
+                getObjectRegistry().unregister(tunnel);
+                getStationTunnelIndex().remove(tunnel);
+                if (viewIndex != null) viewIndex.getTunnels().remove(tunnel);
+            }
+        }
+        if (!removedLabels.isEmpty()) {
+            stationLabels.removeIf(removedLabels::contains);
+            for (StationLabel stationLabel : removedLabels) {
+                getLabelRegistry().remove(stationLabel);
+                getObjectRegistry().unregister(stationLabel);
+                if (viewIndex != null) viewIndex.getLabels().remove(stationLabel);
+                clearGridContent(stationLabel);
+            }
+        }
+        if (!removedStations.isEmpty()) {
+            stations.removeIf(removedStations::contains);
+            for (Station station : removedStations) {
+                getObjectRegistry().unregister(station);
+                if (viewIndex != null) viewIndex.getStations().remove(station);
+                clearGridContent(station);
+                markStationAreaDirty(station.getX(), station.getY());
+            }
+        }
+    }
+
+    private void clearGridContent(GameObject object) {
+        gameGrid.clear(object.getX(), object.getY(), object);
+    }
+
+    /**
+     * Called once after a batch was applied. Batches only touch objects, the layer revisions
+     * are already bumped, so the terrain caches are kept and one repaint is enough.
+     */
+    protected void onBatchApplied() {
+        if (screen != null) {
+            screen.repaint();
+        }
+    }
+
     /******************
      * TUNNELS
      ******************/
@@ -399,6 +701,15 @@ public class World implements Serializable {
      */
 
     public void addTunnel(Tunnel tunnel) {
+        insertTunnel(tunnel);
+    }
+
+    /**
+     * Creates a tunnel between the stations found at the given tunnel's ends
+     * @param tunnel Tunnel describing the ends and the type
+     * @return Tunnel stored in the world or null if such a tunnel already exists
+     */
+    Tunnel insertTunnel(Tunnel tunnel) {
         // Получаем координаты станций
         int start_x = tunnel.getStart().getX();
         int start_y = tunnel.getStart().getY();
@@ -411,12 +722,8 @@ public class World implements Serializable {
 
 
         // Проверяем, существует ли уже такой туннель
-        for (Tunnel existingTunnel : tunnels) {
-            if ((existingTunnel.getStart() == actualStart && existingTunnel.getEnd() == actualEnd) ||
-                    (existingTunnel.getStart() == actualEnd && existingTunnel.getEnd() == actualStart)) {
-
-                return;
-            }
+        if (getStationTunnelIndex().getTunnelBetween(actualStart, actualEnd) != null) {
+            return null;
         }
 
         // Создаем новый туннель с найденными станциями
@@ -427,7 +734,12 @@ public class World implements Serializable {
 
         // Добавляем туннель в список
         tunnels.add(newTunnel);
-
+        getTunnelIndex().add(newTunnel);
+        getObjectRegistry().register(newTunnel);
+        getStationTunnelIndex().add(newTunnel);
+        if (viewIndex != null) viewIndex.update(newTunnel);
+        markLayerChanged(WorldLayer.TUNNELS);
+        return newTunnel;
     }
 
     /**
@@ -465,14 +777,64 @@ public class World implements Serializable {
      * @return Tunnel or null if none exists
      */
     public Tunnel getTunnelAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return null;
+        return getTunnelIndex().getFirstAt(x, y);
+    }
+
+    /**
+     * Gets the tile -> tunnel index, rebuilding it if the tunnel list was replaced
+     * @return Tunnel index for the current world size
+     */
+    public PathTileIndex<Tunnel> getTunnelIndex() {
+        if (tunnelIndex == null || tunnelIndex.getWidth() != width || tunnelIndex.getHeight() != height) {
+            rebuildTunnelIndex();
+        }
+        return tunnelIndex;
+    }
+
+    private void rebuildTunnelIndex() {
+        int expectedTiles = 0;
         for (Tunnel tunnel : tunnels) {
-            for (PathPoint p : tunnel.getPath()) {
-                if (p.getX() == x && p.getY() == y) {
-                    return tunnel;
-                }
-            }
+            expectedTiles += tunnel.getPath().size();
         }
-        return null;
+        tunnelIndex = new PathTileIndex<>(width, height, expectedTiles, Tunnel::getPath);
+        for (Tunnel tunnel : tunnels) {
+            tunnelIndex.add(tunnel);
+        }
+    }
+
+    /**
+     * Gets the station -> incident tunnels index, building it on first use
+     * @return Adjacency index
+     */
+    public StationTunnelIndex getStationTunnelIndex() {
+        if (stationTunnels == null) {
+            stationTunnels = new StationTunnelIndex(tunnels);
+        }
+        return stationTunnels;
+    }
+
+    /**
+     * Gets the tunnels that start or end at the station
+     * @param station Station
+     * @return Unmodifiable live list, copy it before adding or removing tunnels
+     */
+    public List<Tunnel> getTunnelsForStation(Station station) {
+        return getStationTunnelIndex().getTunnels(station);
+    }
+
+    /**
+     * Called by a tunnel after its path was recalculated
+     * @param tunnel Tunnel whose path changed
+     */
+    public void onTunnelPathChanged(Tunnel tunnel) {
+        if (tunnelIndex != null) {
+            tunnelIndex.update(tunnel);
+        }
+        if (viewIndex != null && viewIndex.getTunnels().contains(tunnel)) {
+            viewIndex.update(tunnel);
+        }
+        markLayerChanged(WorldLayer.TUNNELS);
     }
     /**
      * Removes a tunnel from the world
@@ -488,226 +850,30 @@ public class World implements Serializable {
             }
         }
         tunnels.remove(tunnel);
+        getTunnelIndex().remove(tunnel);
+        getObjectRegistry().unregister(tunnel);
+        getStationTunnelIndex().remove(tunnel);
+        if (viewIndex != null) viewIndex.getTunnels().remove(tunnel);
+        markLayerChanged(WorldLayer.TUNNELS);
         tunnel.getStart().disconnect(tunnel.getEnd());
         tunnel.getEnd().disconnect(tunnel.getStart());
     }
 
 
-    private WorldEdge getOppositeEdge(WorldEdge edge) {
-        switch (edge) {
-            case TOP: return WorldEdge.BOTTOM;
-            case BOTTOM: return WorldEdge.TOP;
-            case LEFT: return WorldEdge.RIGHT;
-            case RIGHT: return WorldEdge.LEFT;
-            default: return WorldEdge.TOP;
-        }
-    }
-
-    // Замените старый метод addRivers на этот:
+    /**
+     * Carves rivers using the seeded parallel terrain pipeline.
+     * Not called on world creation yet: {@link GameWorld#generateWorld} makes flat land.
+     * @param riverCount Number of rivers
+     */
     void addRivers(int riverCount) {
-        for (int i = 0; i < riverCount; i++) {
-            WorldEdge startEdge = WorldEdge.values()[rand.nextInt(WorldEdge.values().length)];
-            WorldEdge endEdge = getOppositeEdge(startEdge);
-
-            // Получаем начальную и конечную точки в мировых координатах
-            PathPoint startPos = getRandomEdgePathPoint(startEdge);
-            PathPoint endPos = getRandomEdgePathPoint(endEdge);
-
-            generateMeanderingRiver(startPos, endPos, rand.nextFloat() * 0.3f + 0.1f);
-        }
-    }
-
-    private PathPoint getRandomEdgePathPoint(WorldEdge edge) {
-        int x, y;
-        int edgeOffset = 3; // Отступ от края карты
-
-        switch (edge) {
-            case TOP:
-                x = rand.nextInt(width - edgeOffset*2) + edgeOffset;
-                y = 0;
-                break;
-            case RIGHT:
-                x = width - 1;
-                y = rand.nextInt(height - edgeOffset*2) + edgeOffset;
-                break;
-            case BOTTOM:
-                x = rand.nextInt(width - edgeOffset*2) + edgeOffset;
-                y = height - 1;
-                break;
-            case LEFT:
-                x = 0;
-                y = rand.nextInt(height - edgeOffset*2) + edgeOffset;
-                break;
-            default:
-                x = 0;
-                y = 0;
-        }
-
-        // Создаем PathPoint с мировыми координатами
-        return new PathPoint(x, y);
-    }
-
-    private void generateMeanderingRiver(PathPoint start, PathPoint end, float meanderAmount) {
-        List<PathPoint> riverPath = new ArrayList<>();
-        riverPath.add(start);
-
-        int currentX = start.getX();
-        int currentY = start.getY();
-        Random rand = new Random();
-
-        // Основное направление к конечной точке
-        int dx = Integer.compare(end.getX(), currentX);
-        int dy = Integer.compare(end.getY(), currentY);
-
-        // Перпендикулярное направление для изгибов
-        int perpX = -dy;
-        int perpY = dx;
-
-        while (!(currentX == end.getX() && currentY == end.getY())) {
-            // Основное движение к цели (70% вероятность)
-            if (rand.nextFloat() < 0.2) {
-                currentX = clamp(currentX + dx, 0, width-1);
-                currentY = clamp(currentY + dy, 0, height-1);
-            }
-
-            // Добавляем изгибы (40% вероятность)
-            if (rand.nextFloat() < 0.8) {
-                int offset = rand.nextBoolean() ? 1 : -1;
-                currentX = clamp(currentX + perpX * offset, 0, width-1);
-                currentY = clamp(currentY + perpY * offset, 0, height-1);
-            }
-
-            // Добавляем точку только если она изменилась
-            PathPoint last = riverPath.get(riverPath.size()-1);
-            if (currentX != last.getX() || currentY != last.getY()) {
-                riverPath.add(new PathPoint(currentX, currentY));
-            }
-
-            // Защита от зацикливания
-            if (riverPath.size() > width * height) break;
-        }
-
-        // Сглаживаем путь реки
-        riverPath = smoothRiverPath(riverPath);
-
-        // Устанавливаем тайлы реки
-        for (PathPoint point : riverPath) {
-            setRiverTile(point.getX(), point.getY(), 2 + rand.nextInt(2)); // Ширина 2-3 тайла
-        }
-    }
-
-    private int clamp(int value, int min, int max) {
-        return Math.min(Math.max(value, min), max);
-    }
-
-    private List<PathPoint> smoothRiverPath(List<PathPoint> path) {
-        if (path.size() < 3) return path;
-
-        List<PathPoint> smoothed = new ArrayList<>();
-        smoothed.add(path.get(0));
-
-        for (int i = 1; i < path.size() - 1; i++) {
-            PathPoint prev = path.get(i-1);
-            PathPoint curr = path.get(i);
-            PathPoint next = path.get(i+1);
-
-            // Усредняем только угловые точки
-            if (prev.getX() != next.getX() && prev.getY() != next.getY()) {
-                int avgX = (prev.getX() + curr.getX() + next.getX()) / 3;
-                int avgY = (prev.getY() + curr.getY() + next.getY()) / 3;
-                smoothed.add(new PathPoint(avgX, avgY));
-            } else {
-                smoothed.add(curr);
-            }
-        }
-
-        smoothed.add(path.get(path.size()-1));
-        return smoothed;
-    }
-
-
-
-
-    private void setRiverTile(int x, int y, int radius) {
-        getWorldTile(x,y).setPerm(0.3f);
-        getWorldTile(x,y).setWater(true);
-        getWorldTile(x,y).setWaterDepth(1.0f); // Центр - максимальная глубина
-
-        for (int dy = -radius; dy <= radius; dy++) {
-            for (int dx = -radius; dx <= radius; dx++) {
-                float dist = (float)Math.sqrt(dx*dx + dy*dy);
-                if (dist <= radius) {
-                    int nx = x + dx;
-                    int ny = y + dy;
-
-                    if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
-                        float perm = 0.3f + (dist/radius) * 0.4f;
-                        getWorldTile(nx,ny).setPerm(perm);
-
-                        // Устанавливаем глубину (1 в центре, 0 на краях)
-                        float depth = 1.0f - (dist / radius);
-                        if (dist < radius * 0.7f) {
-                            getWorldTile(nx,ny).setWater(true);
-                            getWorldTile(nx,ny).setWaterDepth(depth);
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-
-
-
-    private boolean canMove(int x, int y) {
-        return x >= 0 && x < width && y >= 0 && y < height;
+        new TerrainGenerator(terrain, seed).carveRivers(riverCount);
     }
 
     /**
-     * Applies gradient smoothing around permission boundaries
+     * Applies gradient smoothing around permission boundaries. Not called on world creation yet.
      */
     void applyGradient() {
-        // Make a copy for reference
-        float[][] originalPerm = new float[width][height];
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                originalPerm[x][y] = getWorldTile(x,y).getPerm();
-            }
-        }
-
-        // Apply smoothing
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                if (originalPerm[x][y] == 0 || originalPerm[x][y] == 1) {
-                    // Only smooth at boundaries
-                    boolean hasNeighbor = false;
-                    for (int ny = Math.max(0, y-1); ny < Math.min(height, y+2); ny++) {
-                        for (int nx = Math.max(0, x-1); nx < Math.min(width, x+2); nx++) {
-                            if (originalPerm[nx][ny] != originalPerm[x][y]) {
-                                hasNeighbor = true;
-                                break;
-                            }
-                        }
-                        if (hasNeighbor) break;
-                    }
-
-                    if (hasNeighbor) {
-                        // Calculate average of neighbors
-                        float sum = 0;
-                        int count = 0;
-                        for (int ny = Math.max(0, y-1); ny < Math.min(height, y+2); ny++) {
-                            for (int nx = Math.max(0, x-1); nx < Math.min(width, x+2); nx++) {
-                                if (nx != x || ny != y) {
-                                    sum += originalPerm[nx][ny];
-                                    count++;
-                                }
-                            }
-                        }
-                        getWorldTile(x,y).setPerm(sum / count);
-                    }
-                }
-            }
-        }
+        new TerrainGenerator(terrain, seed).applyGradient();
     }
 
     public Color getWorldColorAt(int x, int y) {
@@ -716,17 +882,48 @@ public class World implements Serializable {
     }
 
     private int index(int x, int y) {
-        return y * width + x;
+        return terrain.index(x, y);
     }
 
+    /**
+     * Gets a view over the terrain tile at specified coordinates
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return WorldTile view or null if out of bounds
+     */
     public WorldTile getWorldTile(int x, int y) {
         if (x < 0 || x >= width || y < 0 || y >= height) return null;
-        return worldGrid[y * width + x];
+        return terrain.view(x, y);
     }
 
-    public GameTile getGameTile(int x, int y) {
-        if (x < 0 || x >= width || y < 0 || y >= height) return null;
-        return gameGrid[y * width + x];
+    /**
+     * Gets the game tile at specified coordinates to write into it, allocating its chunk on
+     * first access. Read-only checks use {@link #getTileContent} instead.
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return GameTile or null if out of bounds
+     */
+    public GameTile getOrCreateGameTile(int x, int y) {
+        return gameGrid.getOrCreate(x, y);
+    }
+
+    /**
+     * Gets the object in the game tile without allocating anything
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return GameObject or null if the tile is empty or out of bounds
+     */
+    public GameObject getTileContent(int x, int y) {
+        return gameGrid.getContent(x, y);
+    }
+
+    /**
+     * Empties the game tile and releases it, together with its chunk once the chunk is empty
+     * @param x X coordinate
+     * @param y Y coordinate
+     */
+    public void clearGameTile(int x, int y) {
+        gameGrid.clear(x, y, null);
     }
     //public WorldTile getWorldTile(int x, int y) {
 //    //    System.out.println("getWorldTile: " + x + ", " + y);
@@ -735,8 +932,7 @@ public class World implements Serializable {
 //}
     public void setWorldTile(int x, int y, WorldTile tile) {
         if (x < 0 || x >= width || y < 0 || y >= height) return;
-        worldGrid[index(x, y)] = tile;
-
+        terrain.copyFrom(index(x, y), tile);
     }
 
     //    public GameTile getGameTile(int x, int y) {
@@ -744,38 +940,34 @@ public class World implements Serializable {
 //        return gameGrid[index(x, y)];
 //    }
     public void setGameTile(int x, int y, GameTile tile) {
-        if (x < 0 || x >= width || y < 0 || y >= height) return;
-        gameGrid[index(x, y)] = tile;
+        gameGrid.set(x, y, tile);
     }
     public GameTile getGameplayTile(int x, int y) {
-        if (x < 0 || x >= width || y < 0 || y >= height) return null;
-        return gameplayGrid[index(x, y)];
+        return gameplayGrid.get(x, y);
     }
     public void setGameplayTile(int x, int y, GameTile tile) {
-        if (x < 0 || x >= width || y < 0 || y >= height) return;
-        gameplayGrid[index(x, y)] = tile;
+        gameplayGrid.set(x, y, tile);
     }
 
 
     /**
-     * Gets the world grid
-     * @return 2D array of world tiles
+     * Gets the terrain layer
+     * @return Primitive terrain storage
      */
-//    public WorldTile[][] getWorldGrid() { return worldGrid; }
-    public WorldTile[] getWorldGrid() {
-        return worldGrid;
+    public TerrainLayer getTerrain() {
+        return terrain;
     }
     /**
      * Gets the game grid
-     * @return 2D array of game tiles
+     * @return Sparse chunked grid of game tiles
      */
-    public GameTile[] getGameGrid() { return gameGrid; }
+    public GameTileGrid getGameGrid() { return gameGrid; }
 
     /**
      * Gets the gameplay grid
-     * @return 2D array of game tiles
+     * @return Sparse chunked grid of game tiles
      */
-    public GameTile[] getGameplayGrid() { return gameplayGrid; }
+    public GameTileGrid getGameplayGrid() { return gameplayGrid; }
     public WorldScreen getWorldScreen() {
         if (this instanceof GameWorld) {
             return GameWorldScreen.getInstance();
@@ -806,9 +998,196 @@ public class World implements Serializable {
         this.height = height;
     }
 
+    /**
+     * Gets the seed of procedural generation
+     * @return World seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.rand = new Random(seed);
+    }
+
     /**************************
      * SAVE AND LOAD SECTIONS
      */
+
+    /**
+     * Rebuilds all derived lookup structures from the object lists.
+     * Must be called after the lists were filled directly (loading).
+     */
+    public void rebuildIndexes() {
+        rebuildTunnelIndex();
+        rebuildRiverIndex();
+        labelRegistry = new LabelRegistry(stationLabels);
+        stationTunnels = new StationTunnelIndex(tunnels);
+        rebuildObjectRegistry();
+        viewIndex = null;
+        markAllLayersChanged();
+    }
+
+    /**
+     * Gets the spatial index of drawable objects for viewport queries.
+     * Rebuilt lazily when the world size changed or the lists were edited bypassing the index.
+     * @return View index
+     */
+    public WorldViewIndex getViewIndex() {
+        if (viewIndex == null || viewIndex.getWidth() != width || viewIndex.getHeight() != height
+                || !viewIndex.matches(stations.size(), tunnels.size(), rivers.size(), stationLabels.size())) {
+            rebuildViewIndex();
+        }
+        return viewIndex;
+    }
+
+    private void rebuildViewIndex() {
+        WorldViewIndex index = new WorldViewIndex(width, height);
+        for (Station station : stations) {
+            index.update(station);
+        }
+        for (Tunnel tunnel : tunnels) {
+            index.update(tunnel);
+        }
+        for (River river : rivers) {
+            index.update(river);
+        }
+        for (StationLabel stationLabel : stationLabels) {
+            index.update(stationLabel);
+        }
+        viewIndex = index;
+        // Списки менялись в обход хуков - что именно поменялось, неизвестно
+        markAllLayersChanged();
+    }
+
+    /**
+     * Called after an object was moved to another tile, keeps the view index in sync
+     * @param object Moved object
+     */
+    public void onObjectMoved(GameObject object) {
+        if (viewIndex != null) {
+            viewIndex.moved(object, getLabelRegistry().getAll(object));
+        }
+        markLayerChanged(WorldLayer.STATIONS);
+        markLayerChanged(WorldLayer.TUNNELS);
+        markLayerChanged(WorldLayer.LABELS);
+    }
+
+    /**
+     * Records an edit of objects drawn in a layer and schedules a repaint, so that edits made
+     * outside input handlers (popup menus, info windows) show up with on-demand rendering
+     * @param layer Layer whose cached image is now stale
+     */
+    public void markLayerChanged(WorldLayer layer) {
+        getLayerRevisions()[layer.ordinal()]++;
+        requestRepaint();
+    }
+
+    public void markAllLayersChanged() {
+        int[] revisions = getLayerRevisions();
+        for (int i = 0; i < revisions.length; i++) {
+            revisions[i]++;
+        }
+        requestRepaint();
+    }
+
+    private void requestRepaint() {
+        // RepaintManager склеивает запросы, серия правок дает один кадр
+        if (screen != null) {
+            screen.repaint();
+        }
+    }
+
+    /**
+     * Gets the edit counter of a layer
+     * @param layer Layer
+     * @return Value that changes on every edit of the layer's objects
+     */
+    public int getLayerRevision(WorldLayer layer) {
+        return getLayerRevisions()[layer.ordinal()];
+    }
+
+    private int[] getLayerRevisions() {
+        if (layerRevisions == null) {
+            layerRevisions = new int[WorldLayer.values().length];
+        }
+        return layerRevisions;
+    }
+
+    /**
+     * Gets the uniqueId -> object registry, building it on first use
+     * @return Object registry
+     */
+    public GameObjectRegistry getObjectRegistry() {
+        if (objectRegistry == null) {
+            rebuildObjectRegistry();
+        }
+        return objectRegistry;
+    }
+
+    /**
+     * Resolves a game object by its unique id
+     * @param id Unique id
+     * @return Object or null
+     */
+    public GameObject getObjectById(long id) {
+        return getObjectRegistry().get(id);
+    }
+
+    /**
+     * Adds an object that was put into the lists directly (loading) to the id registry
+     * @param object Object to register
+     */
+    public void registerObject(GameObject object) {
+        getObjectRegistry().register(object);
+    }
+
+    private void rebuildObjectRegistry() {
+        GameObjectRegistry registry = new GameObjectRegistry(
+                stations.size() + tunnels.size() + stationLabels.size() + rivers.size());
+        // Объекты без сохраняемого ID регистрируются первыми:
+        // при коллизии новый ID получают они, а не станции и реки из сохранения
+        for (Tunnel tunnel : tunnels) {
+            registry.register(tunnel);
+        }
+        for (StationLabel stationLabel : stationLabels) {
+            registry.register(stationLabel);
+        }
+        if (gameGrid != null) {
+            for (RiverPoint point : getRiverPoints()) {
+                registry.register(point);
+            }
+        }
+        for (River river : rivers) {
+            registry.register(river);
+        }
+        for (Station station : stations) {
+            registry.register(station);
+        }
+        objectRegistry = registry;
+    }
+
+    /**
+     * Re-binds loaded objects to this world, so that change notifications reach its indexes
+     */
+    protected void adoptObjects() {
+        for (Station station : stations) {
+            station.setWorld(this);
+        }
+        for (Tunnel tunnel : tunnels) {
+            tunnel.setWorld(this);
+        }
+        for (StationLabel stationLabel : stationLabels) {
+            stationLabel.setWorld(this);
+        }
+        for (River river : rivers) {
+            river.setWorld(this);
+            for (RiverPoint point : river.getPoints()) {
+                point.setWorld(this);
+            }
+        }
+    }
     public void saveWorld() {
         try {
             MetroSerializer serializer = new MetroSerializer();
@@ -853,15 +1232,19 @@ public class World implements Serializable {
     private void copyWorldData(World source) {
         this.width = source.width;
         this.height = source.height;
-        this.worldGrid = source.worldGrid;
+        this.terrain = source.terrain;
         this.gameGrid = source.gameGrid;
+        this.gameplayGrid = source.gameplayGrid;
         this.stations = source.stations;
         this.tunnels = source.tunnels;
         this.rivers = source.rivers;
         this.stationLabels = source.stationLabels;
         this.roundStationsEnabled = source.roundStationsEnabled;
+        setSeed(source.seed);
         this.SAVE_FILE = source.SAVE_FILE;
         this.customLineNames = new HashMap<>(source.customLineNames);
+        adoptObjects();
+        rebuildIndexes();
     }
     public Map<metroline.objects.enums.StationColors, String> getCustomLineNames() {
         return customLineNames;
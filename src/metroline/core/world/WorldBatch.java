@@ -0,0 +1,71 @@
+package metroline.core.world;
+
+import metroline.objects.gameobjects.Station;
+import metroline.objects.gameobjects.StationLabel;
+import metroline.objects.gameobjects.Tunnel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects world mutations for {@link World#batch(java.util.function.Consumer)}.
+ * Nothing is applied while the batch is being filled; the world applies all removals,
+ * then all inserts in one pass and runs side effects (type updates, layer revisions,
+ * legend refresh, repaint) once at the end.
+ * @author Tesmio
+ */
+public class WorldBatch {
+    final List<Station> stationsToAdd = new ArrayList<>();
+    final List<Tunnel> tunnelsToAdd = new ArrayList<>();
+    final List<Station> stationsToRemove = new ArrayList<>();
+    final List<Tunnel> tunnelsToRemove = new ArrayList<>();
+    final List<StationLabel> labelsToRemove = new ArrayList<>();
+
+    WorldBatch() {
+    }
+
+    /**
+     * Queues a station insert. Its label is placed after all stations of the batch are in the grid.
+     * @param station Station to add
+     * @return This batch
+     */
+    public WorldBatch addStation(Station station) {
+        stationsToAdd.add(station);
+        return this;
+    }
+
+    /**
+     * Queues a tunnel insert. Tunnels are added after the stations of the same batch.
+     * @param tunnel Tunnel to add
+     * @return This batch
+     */
+    public WorldBatch addTunnel(Tunnel tunnel) {
+        tunnelsToAdd.add(tunnel);
+        return this;
+    }
+
+    /**
+     * Queues a station removal together with its label and incident tunnels
+     * @param station Station to remove
+     * @return This batch
+     */
+    public WorldBatch removeStation(Station station) {
+        stationsToRemove.add(station);
+        return this;
+    }
+
+    public WorldBatch removeTunnel(Tunnel tunnel) {
+        tunnelsToRemove.add(tunnel);
+        return this;
+    }
+
+    public WorldBatch removeLabel(StationLabel stationLabel) {
+        labelsToRemove.add(stationLabel);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return stationsToAdd.isEmpty() && tunnelsToAdd.isEmpty() && stationsToRemove.isEmpty()
+                && tunnelsToRemove.isEmpty() && labelsToRemove.isEmpty();
+    }
+}
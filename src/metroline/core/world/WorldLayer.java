@@ -0,0 +1,12 @@
+package metroline.core.world;
+
+/**
+ * Groups of world objects that are drawn together. The world keeps an edit counter per layer,
+ * renderers compare it with the value they last drew to find out what must be redrawn.
+ */
+public enum WorldLayer {
+    RIVERS,
+    TUNNELS,
+    STATIONS,
+    LABELS
+}
@@ -0,0 +1,329 @@
+package metroline.core.world.generation;
+
+import metroline.core.world.WorldEdge;
+import metroline.core.world.tiles.TerrainLayer;
+import metroline.core.world.tiles.WorldChunks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Seeded procedural terrain pipeline writing straight into a {@link TerrainLayer}.
+ * <p>
+ * Stages:
+ * <ol>
+ *     <li>river paths - every river gets its own random stream split from the world seed,
+ *     paths are generated in parallel;</li>
+ *     <li>river carving - tiles are stamped in parallel row bands of one chunk height, every band
+ *     applies the stamps in global order, so the result equals a sequential pass;</li>
+ *     <li>gradient - boundary smoothing over a per-chunk perm snapshot, chunks are processed in parallel.</li>
+ * </ol>
+ * All parallel stages run on the common fork/join pool and give identical output for the same seed.
+ * <p>
+ * No world-creation path runs the pipeline yet: new worlds start as flat land and rivers are
+ * drawn by hand. {@link metroline.core.world.World} exposes the stages for when it is enabled.
+ * @author Tesmio
+ */
+public class TerrainGenerator {
+    private static final int EDGE_OFFSET = 3; // Отступ от края карты
+
+    private final TerrainLayer terrain;
+    private final int width;
+    private final int height;
+    private final long seed;
+
+    public TerrainGenerator(TerrainLayer terrain, long seed) {
+        this.terrain = terrain;
+        this.width = terrain.getWidth();
+        this.height = terrain.getHeight();
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the whole pipeline
+     * @param riverCount Number of rivers to carve
+     */
+    public void generate(int riverCount) {
+        carveRivers(riverCount);
+        applyGradient();
+    }
+
+    // ---------------------------------------------------------------------
+    // Rivers
+    // ---------------------------------------------------------------------
+
+    /**
+     * Generates and carves rivers running between opposite world edges
+     * @param riverCount Number of rivers
+     */
+    public void carveRivers(int riverCount) {
+        if (riverCount <= 0 || width <= EDGE_OFFSET * 2 || height <= EDGE_OFFSET * 2) return;
+
+        // Потоки случайных чисел делятся последовательно - порядок не зависит от планировщика
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[riverCount];
+        for (int i = 0; i < riverCount; i++) {
+            streams[i] = root.split();
+        }
+
+        int[][] stamps = new int[riverCount][];
+        IntStream.range(0, riverCount).parallel().forEach(i -> stamps[i] = generateRiverStamps(streams[i]));
+
+        carveStamps(stamps);
+    }
+
+    /**
+     * Generates one meandering river
+     * @param rand River's own random stream
+     * @return Flat array of stamps {x, y, radius, x, y, radius, ...}
+     */
+    private int[] generateRiverStamps(SplittableRandom rand) {
+        WorldEdge startEdge = WorldEdge.values()[rand.nextInt(WorldEdge.values().length)];
+        WorldEdge endEdge = getOppositeEdge(startEdge);
+        int[] start = getRandomEdgePoint(startEdge, rand);
+        int[] end = getRandomEdgePoint(endEdge, rand);
+
+        List<int[]> path = meander(start, end, rand);
+        path = smoothPath(path);
+
+        int[] stamps = new int[path.size() * 3];
+        for (int i = 0; i < path.size(); i++) {
+            stamps[i * 3] = path.get(i)[0];
+            stamps[i * 3 + 1] = path.get(i)[1];
+            stamps[i * 3 + 2] = 2 + rand.nextInt(2); // Ширина 2-3 тайла
+        }
+        return stamps;
+    }
+
+    private List<int[]> meander(int[] start, int[] end, SplittableRandom rand) {
+        List<int[]> path = new ArrayList<>();
+        path.add(start);
+
+        int currentX = start[0];
+        int currentY = start[1];
+
+        // Основное направление к конечной точке
+        int dx = Integer.compare(end[0], currentX);
+        int dy = Integer.compare(end[1], currentY);
+
+        // Перпендикулярное направление для изгибов
+        int perpX = -dy;
+        int perpY = dx;
+        long maxLength = (long) width * height;
+
+        while (!(currentX == end[0] && currentY == end[1])) {
+            // Основное движение к цели
+            if (rand.nextDouble() < 0.2) {
+                currentX = clamp(currentX + dx, 0, width - 1);
+                currentY = clamp(currentY + dy, 0, height - 1);
+            }
+
+            // Изгибы
+            if (rand.nextDouble() < 0.8) {
+                int offset = rand.nextBoolean() ? 1 : -1;
+                currentX = clamp(currentX + perpX * offset, 0, width - 1);
+                currentY = clamp(currentY + perpY * offset, 0, height - 1);
+            }
+
+            // Добавляем точку только если она изменилась
+            int[] last = path.get(path.size() - 1);
+            if (currentX != last[0] || currentY != last[1]) {
+                path.add(new int[]{currentX, currentY});
+            }
+
+            // Защита от зацикливания
+            if (path.size() > maxLength) break;
+        }
+        return path;
+    }
+
+    private List<int[]> smoothPath(List<int[]> path) {
+        if (path.size() < 3) return path;
+
+        List<int[]> smoothed = new ArrayList<>(path.size());
+        smoothed.add(path.get(0));
+        for (int i = 1; i < path.size() - 1; i++) {
+            int[] prev = path.get(i - 1);
+            int[] curr = path.get(i);
+            int[] next = path.get(i + 1);
+
+            // Усредняем только угловые точки
+            if (prev[0] != next[0] && prev[1] != next[1]) {
+                smoothed.add(new int[]{(prev[0] + curr[0] + next[0]) / 3, (prev[1] + curr[1] + next[1]) / 3});
+            } else {
+                smoothed.add(curr);
+            }
+        }
+        smoothed.add(path.get(path.size() - 1));
+        return smoothed;
+    }
+
+    /**
+     * Writes river stamps into the layer. Each worker owns a band of chunk rows,
+     * so no two workers touch the same chunk.
+     */
+    private void carveStamps(int[][] riverStamps) {
+        int bands = WorldChunks.chunksFor(height);
+        List<List<int[]>> stampsByBand = new ArrayList<>(bands);
+        for (int i = 0; i < bands; i++) {
+            stampsByBand.add(new ArrayList<>());
+        }
+        // Распределяем в глобальном порядке - внутри полосы порядок совпадает с последовательным
+        for (int[] stamps : riverStamps) {
+            for (int i = 0; i < stamps.length; i += 3) {
+                int[] stamp = {stamps[i], stamps[i + 1], stamps[i + 2]};
+                int firstBand = Math.max(0, stamp[1] - stamp[2]) >> WorldChunks.CHUNK_SHIFT;
+                int lastBand = Math.min(height - 1, stamp[1] + stamp[2]) >> WorldChunks.CHUNK_SHIFT;
+                for (int band = firstBand; band <= lastBand; band++) {
+                    stampsByBand.get(band).add(stamp);
+                }
+            }
+        }
+
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int bandY0 = band << WorldChunks.CHUNK_SHIFT;
+            int bandY1 = Math.min(height, bandY0 + WorldChunks.CHUNK_SIZE);
+            for (int[] stamp : stampsByBand.get(band)) {
+                stampRiverTile(stamp[0], stamp[1], stamp[2], bandY0, bandY1);
+            }
+        });
+    }
+
+    /**
+     * Carves one river disc, limited to rows [rowFrom, rowTo)
+     */
+    private void stampRiverTile(int x, int y, int radius, int rowFrom, int rowTo) {
+        if (y >= rowFrom && y < rowTo) {
+            int center = terrain.index(x, y);
+            terrain.setPerm(center, 0.3f);
+            terrain.setWater(center, true);
+            terrain.setWaterDepth(center, 1.0f); // Центр - максимальная глубина
+        }
+
+        for (int dy = -radius; dy <= radius; dy++) {
+            int ny = y + dy;
+            if (ny < rowFrom || ny >= rowTo) continue;
+            for (int dx = -radius; dx <= radius; dx++) {
+                float dist = (float) Math.sqrt(dx * dx + dy * dy);
+                if (dist > radius) continue;
+                int nx = x + dx;
+                if (nx < 0 || nx >= width) continue;
+
+                int index = terrain.index(nx, ny);
+                terrain.setPerm(index, 0.3f + (dist / radius) * 0.4f);
+
+                // Глубина: 1 в центре, 0 на краях
+                if (dist < radius * 0.7f) {
+                    terrain.setWater(index, true);
+                    terrain.setWaterDepth(index, 1.0f - (dist / radius));
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Gradient
+    // ---------------------------------------------------------------------
+
+    /**
+     * Smooths perm at boundaries of fully blocked/free tiles.
+     * Reads from a per-chunk snapshot, so only allocated chunks are copied
+     * and only they and their neighbours are visited.
+     */
+    public void applyGradient() {
+        int chunksX = terrain.getChunksX();
+        int chunksY = terrain.getChunksY();
+        float[][] snapshot = new float[chunksX * chunksY][];
+        boolean[] visit = new boolean[chunksX * chunksY];
+        boolean any = false;
+
+        for (int cy = 0; cy < chunksY; cy++) {
+            for (int cx = 0; cx < chunksX; cx++) {
+                float[] perm = terrain.snapshotPerm(cx, cy);
+                if (perm == null) continue;
+                snapshot[cy * chunksX + cx] = perm;
+                any = true;
+                // Граница с соседним пустым чанком тоже может сглаживаться
+                for (int ny = Math.max(0, cy - 1); ny <= Math.min(chunksY - 1, cy + 1); ny++) {
+                    for (int nx = Math.max(0, cx - 1); nx <= Math.min(chunksX - 1, cx + 1); nx++) {
+                        visit[ny * chunksX + nx] = true;
+                    }
+                }
+            }
+        }
+        if (!any) return;
+
+        IntStream.range(0, visit.length).parallel()
+                .filter(chunk -> visit[chunk])
+                .forEach(chunk -> smoothChunk(chunk % chunksX, chunk / chunksX, snapshot, chunksX));
+    }
+
+    private void smoothChunk(int cx, int cy, float[][] snapshot, int chunksX) {
+        int x0 = cx << WorldChunks.CHUNK_SHIFT;
+        int y0 = cy << WorldChunks.CHUNK_SHIFT;
+        int x1 = Math.min(width, x0 + WorldChunks.CHUNK_SIZE);
+        int y1 = Math.min(height, y0 + WorldChunks.CHUNK_SIZE);
+
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                float value = permAt(snapshot, chunksX, x, y);
+                if (value != 0 && value != 1) continue;
+
+                // Only smooth at boundaries
+                boolean hasNeighbor = false;
+                float sum = 0;
+                int count = 0;
+                for (int ny = Math.max(0, y - 1); ny < Math.min(height, y + 2); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx < Math.min(width, x + 2); nx++) {
+                        if (nx == x && ny == y) continue;
+                        float neighbour = permAt(snapshot, chunksX, nx, ny);
+                        if (neighbour != value) hasNeighbor = true;
+                        sum += neighbour;
+                        count++;
+                    }
+                }
+                if (hasNeighbor) {
+                    terrain.setPerm(terrain.index(x, y), sum / count);
+                }
+            }
+        }
+    }
+
+    private static float permAt(float[][] snapshot, int chunksX, int x, int y) {
+        float[] chunk = snapshot[(y >> WorldChunks.CHUNK_SHIFT) * chunksX + (x >> WorldChunks.CHUNK_SHIFT)];
+        return chunk == null ? 0f : chunk[WorldChunks.localIndex(x, y)];
+    }
+
+    // ---------------------------------------------------------------------
+
+    private int[] getRandomEdgePoint(WorldEdge edge, SplittableRandom rand) {
+        switch (edge) {
+            case TOP:
+                return new int[]{rand.nextInt(width - EDGE_OFFSET * 2) + EDGE_OFFSET, 0};
+            case RIGHT:
+                return new int[]{width - 1, rand.nextInt(height - EDGE_OFFSET * 2) + EDGE_OFFSET};
+            case BOTTOM:
+                return new int[]{rand.nextInt(width - EDGE_OFFSET * 2) + EDGE_OFFSET, height - 1};
+            case LEFT:
+                return new int[]{0, rand.nextInt(height - EDGE_OFFSET * 2) + EDGE_OFFSET};
+            default:
+                return new int[]{0, 0};
+        }
+    }
+
+    private static WorldEdge getOppositeEdge(WorldEdge edge) {
+        switch (edge) {
+            case TOP: return WorldEdge.BOTTOM;
+            case BOTTOM: return WorldEdge.TOP;
+            case LEFT: return WorldEdge.RIGHT;
+            case RIGHT: return WorldEdge.LEFT;
+            default: return WorldEdge.TOP;
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.min(Math.max(value, min), max);
+    }
+}
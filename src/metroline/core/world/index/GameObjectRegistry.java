@@ -0,0 +1,80 @@
+package metroline.core.world.index;
+
+import metroline.objects.gameobjects.GameObject;
+import metroline.util.MetroLogger;
+import metroline.util.collections.LongObjectMap;
+
+/**
+ * Per-world registry uniqueId -> game object backed by a primitive long map.
+ * <p>
+ * Objects that receive their id through {@link GameObject#setUniqueId(long)} (loaded stations, rivers)
+ * may collide with ids already handed out by the generator before the save was read.
+ * The registry resolves such a collision in favour of the object being registered:
+ * the previous holder receives a fresh id.
+ */
+public class GameObjectRegistry {
+    private final LongObjectMap<GameObject> objectsById;
+
+    public GameObjectRegistry() {
+        this(64);
+    }
+
+    public GameObjectRegistry(int expectedSize) {
+        objectsById = new LongObjectMap<>(expectedSize);
+    }
+
+    /**
+     * Registers an object under its current id. Registering the same object twice is a no-op.
+     * @param object Object to register
+     */
+    public void register(GameObject object) {
+        long id = object.getUniqueId();
+        GameObject.reserveUniqueId(id);
+        GameObject holder = objectsById.put(id, object);
+        if (holder != null && holder != object) {
+            long freshId = GameObject.nextUniqueId();
+            holder.setUniqueId(freshId);
+            objectsById.put(freshId, holder);
+            MetroLogger.logWarning("[GameObjectRegistry::register] Id " + id + " collision, "
+                    + holder.getClass().getSimpleName() + " moved to " + freshId);
+        }
+    }
+
+    /**
+     * Removes the object if it is the one registered under its id
+     * @param object Object to remove
+     */
+    public void unregister(GameObject object) {
+        if (objectsById.get(object.getUniqueId()) == object) {
+            objectsById.remove(object.getUniqueId());
+        }
+    }
+
+    /**
+     * Gets the object with the given id
+     * @param id Unique id
+     * @return Object or null
+     */
+    public GameObject get(long id) {
+        return objectsById.get(id);
+    }
+
+    /**
+     * Gets the object with the given id if it has the expected type
+     * @param id Unique id
+     * @param type Expected class
+     * @return Object or null if absent or of another type
+     */
+    public <T extends GameObject> T get(long id, Class<T> type) {
+        GameObject object = objectsById.get(id);
+        return type.isInstance(object) ? type.cast(object) : null;
+    }
+
+    public int size() {
+        return objectsById.size();
+    }
+
+    public void clear() {
+        objectsById.clear();
+    }
+}
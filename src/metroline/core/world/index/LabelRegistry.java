@@ -0,0 +1,93 @@
+package metroline.core.world.index;
+
+import metroline.objects.gameobjects.GameObject;
+import metroline.objects.gameobjects.StationLabel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Identity-keyed registry from a game object to the labels attached to it.
+ * Kept consistent by World.addLabel/removeLabel and rebuilt after loading.
+ */
+public class LabelRegistry {
+    private final Map<GameObject, List<StationLabel>> labelsByParent = new IdentityHashMap<>();
+
+    public LabelRegistry() {
+    }
+
+    public LabelRegistry(List<StationLabel> labels) {
+        for (StationLabel label : labels) {
+            add(label);
+        }
+    }
+
+    /**
+     * Registers a label under its current parent object
+     * @param label Label to register
+     */
+    public void add(StationLabel label) {
+        GameObject parent = label.getParentGameObject();
+        if (parent == null) return;
+        List<StationLabel> labels = labelsByParent.computeIfAbsent(parent, k -> new ArrayList<>(1));
+        for (StationLabel existing : labels) {
+            if (existing == label) return;
+        }
+        labels.add(label);
+    }
+
+    /**
+     * Unregisters a label from the given parent
+     * @param label Label to remove
+     * @param parent Parent the label was registered under
+     * @return True if the label was registered under that parent
+     */
+    public boolean remove(StationLabel label, GameObject parent) {
+        if (parent == null) return false;
+        List<StationLabel> labels = labelsByParent.get(parent);
+        if (labels == null) return false;
+        boolean removed = false;
+        for (int i = 0; i < labels.size(); i++) {
+            if (labels.get(i) == label) {
+                labels.remove(i);
+                removed = true;
+                break;
+            }
+        }
+        if (labels.isEmpty()) {
+            labelsByParent.remove(parent);
+        }
+        return removed;
+    }
+
+    public boolean remove(StationLabel label) {
+        return remove(label, label.getParentGameObject());
+    }
+
+    /**
+     * Gets the first label attached to the object
+     * @param parent Parent object
+     * @return Label or null
+     */
+    public StationLabel getFirst(GameObject parent) {
+        List<StationLabel> labels = labelsByParent.get(parent);
+        return labels == null ? null : labels.get(0);
+    }
+
+    /**
+     * Gets all labels attached to the object
+     * @param parent Parent object
+     * @return Unmodifiable list, empty if none
+     */
+    public List<StationLabel> getAll(GameObject parent) {
+        List<StationLabel> labels = labelsByParent.get(parent);
+        return labels == null ? Collections.emptyList() : Collections.unmodifiableList(labels);
+    }
+
+    public void clear() {
+        labelsByParent.clear();
+    }
+}
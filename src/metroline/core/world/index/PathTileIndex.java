@@ -0,0 +1,131 @@
+package metroline.core.world.index;
+
+import metroline.objects.gameobjects.PathPoint;
+import metroline.util.collections.IntObjectMultimap;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Spatial index from world tile to the objects whose path passes through it
+ * (tunnel paths, calculated river paths).
+ * Kept in sync by World (add/remove) and by the owners' path recalculation.
+ * Tiles outside the world are never indexed and never match: the key {@code y * width + x}
+ * would alias a tile of another row.
+ * @param <T> Indexed object type
+ */
+public class PathTileIndex<T> {
+    private final int width;
+    private final int height;
+    private final Function<T, List<PathPoint>> pathOf;
+    private final IntObjectMultimap<T> tiles;
+    // Tiles each object is currently indexed under, so re-indexing does not need the old path
+    private final Map<T, int[]> indexedTiles = new IdentityHashMap<>();
+
+    public PathTileIndex(int width, int height, int expectedTiles, Function<T, List<PathPoint>> pathOf) {
+        this.width = width;
+        this.height = height;
+        this.pathOf = pathOf;
+        this.tiles = new IntObjectMultimap<>(expectedTiles);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Indexes the object under every tile of its current path
+     * @param obj Object to index
+     */
+    public void add(T obj) {
+        remove(obj);
+        List<PathPoint> path = pathOf.apply(obj);
+        int[] keys = new int[path.size()];
+        int count = 0;
+        for (PathPoint p : path) {
+            if (!inBounds(p.getX(), p.getY())) continue;
+            keys[count] = p.getY() * width + p.getX();
+            tiles.put(keys[count++], obj);
+        }
+        indexedTiles.put(obj, count == keys.length ? keys : Arrays.copyOf(keys, count));
+    }
+
+    /**
+     * Removes the object from all tiles it is indexed under
+     * @param obj Object to remove
+     */
+    public void remove(T obj) {
+        int[] keys = indexedTiles.remove(obj);
+        if (keys == null) return;
+        for (int key : keys) {
+            tiles.remove(key, obj);
+        }
+    }
+
+    /**
+     * Re-indexes an object after its path changed. Unknown objects are ignored.
+     * @param obj Object with a recalculated path
+     */
+    public void update(T obj) {
+        if (indexedTiles.containsKey(obj)) {
+            add(obj);
+        }
+    }
+
+    public boolean contains(T obj) {
+        return indexedTiles.containsKey(obj);
+    }
+
+    /**
+     * Gets the first object whose path passes through the tile
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return Object or null
+     */
+    public T getFirstAt(int x, int y) {
+        if (!inBounds(x, y)) return null;
+        return tiles.getFirst(y * width + x);
+    }
+
+    /**
+     * Gets the number of objects whose path passes through the tile
+     */
+    public int countAt(int x, int y) {
+        if (!inBounds(x, y)) return 0;
+        return tiles.count(y * width + x);
+    }
+
+    public T getAt(int x, int y, int i) {
+        if (!inBounds(x, y)) return null;
+        return tiles.get(y * width + x, i);
+    }
+
+    /**
+     * Checks whether the given object's path passes through the tile
+     */
+    public boolean isAt(int x, int y, T obj) {
+        if (!inBounds(x, y)) return false;
+        int key = y * width + x;
+        int count = tiles.count(key);
+        for (int i = 0; i < count; i++) {
+            if (tiles.get(key, i) == obj) return true;
+        }
+        return false;
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public void clear() {
+        tiles.clear();
+        indexedTiles.clear();
+    }
+}
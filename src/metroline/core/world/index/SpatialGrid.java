@@ -0,0 +1,167 @@
+package metroline.core.world.index;
+
+import metroline.util.collections.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over tile-space bounding boxes, identity keyed.
+ * Each object is stored in every cell its bounds overlap; a rectangle query visits only
+ * the overlapped cells and reports each object once. Cells are kept in a hash map and exist
+ * only while they hold objects, so the memory follows the objects, not the world size.
+ * @param <T> Indexed object type
+ */
+public class SpatialGrid<T> {
+    public static final int CELL_SHIFT = 4; // ячейка 16x16 тайлов
+
+    private static final class Entry<T> {
+        final T object;
+        int cellX0, cellY0, cellX1, cellY1;
+        int stamp;
+
+        Entry(T object) {
+            this.object = object;
+        }
+    }
+
+    private final int cellsX;
+    private final int cellsY;
+    private final LongObjectMap<List<Entry<T>>> cells = new LongObjectMap<>();
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private int queryStamp;
+
+    public SpatialGrid(int width, int height) {
+        this.cellsX = Math.max(1, (width + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT);
+        this.cellsY = Math.max(1, (height + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT);
+    }
+
+    /**
+     * Inserts the object or moves it to new bounds
+     * @param object Object to index
+     * @param x0 Left tile, inclusive
+     * @param y0 Top tile, inclusive
+     * @param x1 Right tile, inclusive
+     * @param y1 Bottom tile, inclusive
+     */
+    public void put(T object, int x0, int y0, int x1, int y1) {
+        int cellX0 = clampCell(x0 >> CELL_SHIFT, cellsX);
+        int cellY0 = clampCell(y0 >> CELL_SHIFT, cellsY);
+        int cellX1 = clampCell(x1 >> CELL_SHIFT, cellsX);
+        int cellY1 = clampCell(y1 >> CELL_SHIFT, cellsY);
+
+        Entry<T> entry = entries.get(object);
+        if (entry != null) {
+            if (entry.cellX0 == cellX0 && entry.cellY0 == cellY0
+                    && entry.cellX1 == cellX1 && entry.cellY1 == cellY1) {
+                return;
+            }
+            unlink(entry);
+        } else {
+            entry = new Entry<>(object);
+            entries.put(object, entry);
+        }
+        entry.cellX0 = cellX0;
+        entry.cellY0 = cellY0;
+        entry.cellX1 = cellX1;
+        entry.cellY1 = cellY1;
+        for (int cy = cellY0; cy <= cellY1; cy++) {
+            for (int cx = cellX0; cx <= cellX1; cx++) {
+                long key = (long) cy * cellsX + cx;
+                List<Entry<T>> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new ArrayList<>(4);
+                    cells.put(key, cell);
+                }
+                cell.add(entry);
+            }
+        }
+    }
+
+    public void remove(T object) {
+        Entry<T> entry = entries.remove(object);
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+
+    private void unlink(Entry<T> entry) {
+        for (int cy = entry.cellY0; cy <= entry.cellY1; cy++) {
+            for (int cx = entry.cellX0; cx <= entry.cellX1; cx++) {
+                long key = (long) cy * cellsX + cx;
+                List<Entry<T>> cell = cells.get(key);
+                if (cell == null) continue;
+                for (int i = 0; i < cell.size(); i++) {
+                    if (cell.get(i) == entry) {
+                        cell.remove(i);
+                        break;
+                    }
+                }
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    public boolean contains(T object) {
+        return entries.containsKey(object);
+    }
+
+    /**
+     * Collects the objects whose cells overlap a rectangle of tiles
+     * @param x0 Left tile, inclusive
+     * @param y0 Top tile, inclusive
+     * @param x1 Right tile, inclusive
+     * @param y1 Bottom tile, inclusive
+     * @param out Receives each matching object once
+     */
+    public void query(int x0, int y0, int x1, int y1, List<T> out) {
+        if (x1 < x0 || y1 < y0) return;
+        int cellX0 = clampCell(x0 >> CELL_SHIFT, cellsX);
+        int cellY0 = clampCell(y0 >> CELL_SHIFT, cellsY);
+        int cellX1 = clampCell(x1 >> CELL_SHIFT, cellsX);
+        int cellY1 = clampCell(y1 >> CELL_SHIFT, cellsY);
+
+        // Прямоугольник больше числа объектов (мелкий зум) - дешевле проверить сами объекты
+        if ((long) (cellX1 - cellX0 + 1) * (cellY1 - cellY0 + 1) > entries.size()) {
+            for (Entry<T> entry : entries.values()) {
+                if (entry.cellX0 <= cellX1 && entry.cellX1 >= cellX0
+                        && entry.cellY0 <= cellY1 && entry.cellY1 >= cellY0) {
+                    out.add(entry.object);
+                }
+            }
+            return;
+        }
+
+        int stamp = ++queryStamp;
+        for (int cy = cellY0; cy <= cellY1; cy++) {
+            for (int cx = cellX0; cx <= cellX1; cx++) {
+                List<Entry<T>> cell = cells.get((long) cy * cellsX + cx);
+                if (cell == null) continue;
+                for (int i = 0; i < cell.size(); i++) {
+                    Entry<T> entry = cell.get(i);
+                    if (entry.stamp != stamp) {
+                        entry.stamp = stamp;
+                        out.add(entry.object);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int clampCell(int cell, int cells) {
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        cells.clear();
+    }
+}
@@ -0,0 +1,109 @@
+package metroline.core.world.index;
+
+import metroline.objects.gameobjects.Station;
+import metroline.objects.gameobjects.Tunnel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adjacency index station -> incident tunnels, identity keyed.
+ * Kept in sync by World.addTunnel/removeTunnel and rebuilt after loading,
+ * so per-station tunnel queries cost O(degree) instead of a scan over all tunnels.
+ */
+public class StationTunnelIndex {
+    private final Map<Station, List<Tunnel>> tunnelsByStation = new IdentityHashMap<>();
+
+    public StationTunnelIndex() {
+    }
+
+    public StationTunnelIndex(List<Tunnel> tunnels) {
+        for (Tunnel tunnel : tunnels) {
+            add(tunnel);
+        }
+    }
+
+    /**
+     * Registers a tunnel at both of its end stations
+     * @param tunnel Tunnel to add
+     */
+    public void add(Tunnel tunnel) {
+        addTo(tunnel.getStart(), tunnel);
+        if (tunnel.getEnd() != tunnel.getStart()) {
+            addTo(tunnel.getEnd(), tunnel);
+        }
+    }
+
+    private void addTo(Station station, Tunnel tunnel) {
+        if (station == null) return;
+        List<Tunnel> incident = tunnelsByStation.computeIfAbsent(station, k -> new ArrayList<>(2));
+        for (Tunnel existing : incident) {
+            if (existing == tunnel) return;
+        }
+        incident.add(tunnel);
+    }
+
+    /**
+     * Unregisters a tunnel from both of its end stations
+     * @param tunnel Tunnel to remove
+     */
+    public void remove(Tunnel tunnel) {
+        removeFrom(tunnel.getStart(), tunnel);
+        removeFrom(tunnel.getEnd(), tunnel);
+    }
+
+    private void removeFrom(Station station, Tunnel tunnel) {
+        if (station == null) return;
+        List<Tunnel> incident = tunnelsByStation.get(station);
+        if (incident == null) return;
+        for (int i = 0; i < incident.size(); i++) {
+            if (incident.get(i) == tunnel) {
+                incident.remove(i);
+                break;
+            }
+        }
+        if (incident.isEmpty()) {
+            tunnelsByStation.remove(station);
+        }
+    }
+
+    /**
+     * Gets the tunnels that start or end at the station
+     * @param station Station
+     * @return Unmodifiable live list, empty if none. Copy it before adding or removing tunnels.
+     */
+    public List<Tunnel> getTunnels(Station station) {
+        List<Tunnel> incident = tunnelsByStation.get(station);
+        return incident == null ? Collections.emptyList() : Collections.unmodifiableList(incident);
+    }
+
+    /**
+     * Finds the tunnel connecting two stations
+     * @param a First station
+     * @param b Second station
+     * @return Tunnel in either direction or null
+     */
+    public Tunnel getTunnelBetween(Station a, Station b) {
+        List<Tunnel> incident = tunnelsByStation.get(a);
+        if (incident == null) return null;
+        for (Tunnel tunnel : incident) {
+            if ((tunnel.getStart() == a && tunnel.getEnd() == b) ||
+                    (tunnel.getStart() == b && tunnel.getEnd() == a)) {
+                return tunnel;
+            }
+        }
+        return null;
+    }
+
+    public int getDegree(Station station) {
+        List<Tunnel> incident = tunnelsByStation.get(station);
+        return incident == null ? 0 : incident.size();
+    }
+
+    public void clear() {
+        tunnelsByStation.clear();
+    }
+}
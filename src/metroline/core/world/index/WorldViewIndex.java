@@ -0,0 +1,121 @@
+package metroline.core.world.index;
+
+import metroline.objects.gameobjects.GameObject;
+import metroline.objects.gameobjects.PathPoint;
+import metroline.objects.gameobjects.River;
+import metroline.objects.gameobjects.Station;
+import metroline.objects.gameobjects.StationLabel;
+import metroline.objects.gameobjects.Tunnel;
+
+import java.util.List;
+
+/**
+ * Spatial index of everything drawn over the static world, used for viewport culling.
+ * Every object is stored under its tile bounding box including what it paints around itself
+ * (river stroke, station rings). Labels are stored at their anchor: the text width is only
+ * known while drawing, so the label query is widened by the caller instead.
+ * Kept in sync by World and rebuilt when its sizes no longer match the object lists.
+ */
+public class WorldViewIndex {
+    private static final int STATION_MARGIN = 1;
+    private static final int TUNNEL_MARGIN = 1;
+
+    private final int width;
+    private final int height;
+    private final SpatialGrid<Station> stations;
+    private final SpatialGrid<Tunnel> tunnels;
+    private final SpatialGrid<River> rivers;
+    private final SpatialGrid<StationLabel> labels;
+
+    public WorldViewIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stations = new SpatialGrid<>(width, height);
+        this.tunnels = new SpatialGrid<>(width, height);
+        this.rivers = new SpatialGrid<>(width, height);
+        this.labels = new SpatialGrid<>(width, height);
+    }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    public SpatialGrid<Station> getStations() { return stations; }
+
+    public SpatialGrid<Tunnel> getTunnels() { return tunnels; }
+
+    public SpatialGrid<River> getRivers() { return rivers; }
+
+    public SpatialGrid<StationLabel> getLabels() { return labels; }
+
+    public void update(Station station) {
+        stations.put(station, station.getX() - STATION_MARGIN, station.getY() - STATION_MARGIN,
+                station.getX() + STATION_MARGIN, station.getY() + STATION_MARGIN);
+    }
+
+    public void update(Tunnel tunnel) {
+        int[] bounds = pathBounds(tunnel.getPath(), tunnel.getStart(), tunnel.getEnd());
+        tunnels.put(tunnel, bounds[0] - TUNNEL_MARGIN, bounds[1] - TUNNEL_MARGIN,
+                bounds[2] + TUNNEL_MARGIN, bounds[3] + TUNNEL_MARGIN);
+    }
+
+    public void update(River river) {
+        int[] bounds = pathBounds(river.getCalculatedPath(), null, null);
+        // Ширина реки в мировых единицах (тайл = 32), обводка расходится на половину в каждую сторону
+        int margin = (int) Math.ceil(river.getWidth() * 1.1f / 64f) + 1;
+        rivers.put(river, bounds[0] - margin, bounds[1] - margin, bounds[2] + margin, bounds[3] + margin);
+    }
+
+    public void update(StationLabel stationLabel) {
+        GameObject anchor = stationLabel.getParentGameObject() != null
+                ? stationLabel.getParentGameObject() : stationLabel;
+        labels.put(stationLabel, anchor.getX() - 1, anchor.getY() - 1, anchor.getX() + 1, anchor.getY() + 1);
+    }
+
+    /**
+     * Re-indexes an object that changed its position, together with the labels anchored to it
+     * @param object Moved object
+     * @param anchoredLabels Labels whose parent is the object
+     */
+    public void moved(GameObject object, List<StationLabel> anchoredLabels) {
+        if (object instanceof Station && stations.contains((Station) object)) {
+            update((Station) object);
+        } else if (object instanceof StationLabel && labels.contains((StationLabel) object)) {
+            update((StationLabel) object);
+        }
+        for (StationLabel stationLabel : anchoredLabels) {
+            if (labels.contains(stationLabel)) {
+                update(stationLabel);
+            }
+        }
+    }
+
+    private static int[] pathBounds(List<PathPoint> path, GameObject start, GameObject end) {
+        int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        for (PathPoint point : path) {
+            include(bounds, point.getX(), point.getY());
+        }
+        if (start != null) include(bounds, start.getX(), start.getY());
+        if (end != null) include(bounds, end.getX(), end.getY());
+        if (bounds[0] > bounds[2]) {
+            return new int[]{0, 0, 0, 0};
+        }
+        return bounds;
+    }
+
+    private static void include(int[] bounds, int x, int y) {
+        bounds[0] = Math.min(bounds[0], x);
+        bounds[1] = Math.min(bounds[1], y);
+        bounds[2] = Math.max(bounds[2], x);
+        bounds[3] = Math.max(bounds[3], y);
+    }
+
+    /**
+     * Checks whether the index still covers exactly the objects of the lists
+     * @return False if objects were added or removed bypassing the index
+     */
+    public boolean matches(int stationCount, int tunnelCount, int riverCount, int labelCount) {
+        return stations.size() == stationCount && tunnels.size() == tunnelCount
+                && rivers.size() == riverCount && labels.size() == labelCount;
+    }
+}
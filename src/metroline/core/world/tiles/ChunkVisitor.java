@@ -0,0 +1,14 @@
+package metroline.core.world.tiles;
+
+/**
+ * Callback for iterating over allocated world chunks
+ * @author Tesmio
+ */
+@FunctionalInterface
+public interface ChunkVisitor {
+    /**
+     * @param chunkX Chunk column, tiles [chunkX * CHUNK_SIZE, (chunkX + 1) * CHUNK_SIZE)
+     * @param chunkY Chunk row
+     */
+    void visit(int chunkX, int chunkY);
+}
@@ -0,0 +1,214 @@
+package metroline.core.world.tiles;
+
+import metroline.objects.gameobjects.GameObject;
+
+import java.io.Serializable;
+import java.util.function.Consumer;
+
+import static metroline.core.world.tiles.WorldChunks.CHUNK_AREA;
+import static metroline.core.world.tiles.WorldChunks.CHUNK_SHIFT;
+import static metroline.core.world.tiles.WorldChunks.CHUNK_SIZE;
+
+/**
+ * Sparse chunked grid of game tiles.
+ * Chunks and the tiles inside them are created on first write access and released again
+ * when cleared, so a huge world with a handful of objects stays small.
+ * @author Tesmio
+ */
+public class GameTileGrid implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int width;
+    private final int height;
+    private final int chunksX;
+    private final int chunksY;
+    private final GameTile[][] chunks;
+    private final short[] chunkTiles; // число тайлов в каждом чанке
+    private int allocatedChunks;
+
+    public GameTileGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.chunksX = WorldChunks.chunksFor(width);
+        this.chunksY = WorldChunks.chunksFor(height);
+        this.chunks = new GameTile[chunksX * chunksY][];
+        this.chunkTiles = new short[chunksX * chunksY];
+    }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    private int chunkIndex(int x, int y) {
+        return (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+    }
+
+    /**
+     * Gets the tile at the coordinates without allocating anything
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return Tile or null if it was never created or is out of bounds
+     */
+    public GameTile get(int x, int y) {
+        if (!contains(x, y)) return null;
+        GameTile[] chunk = chunks[chunkIndex(x, y)];
+        return chunk == null ? null : chunk[WorldChunks.localIndex(x, y)];
+    }
+
+    /**
+     * Gets the tile at the coordinates, creating its chunk and the tile if needed
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return Tile or null if out of bounds
+     */
+    public GameTile getOrCreate(int x, int y) {
+        if (!contains(x, y)) return null;
+        int chunkIndex = chunkIndex(x, y);
+        GameTile[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new GameTile[CHUNK_AREA];
+            chunks[chunkIndex] = chunk;
+            allocatedChunks++;
+        }
+        int local = WorldChunks.localIndex(x, y);
+        GameTile tile = chunk[local];
+        if (tile == null) {
+            tile = new GameTile((short) x, (short) y);
+            chunk[local] = tile;
+            chunkTiles[chunkIndex]++;
+        }
+        return tile;
+    }
+
+    /**
+     * Replaces the tile at the coordinates
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @param tile New tile, null clears the cell
+     */
+    public void set(int x, int y, GameTile tile) {
+        if (!contains(x, y)) return;
+        int chunkIndex = chunkIndex(x, y);
+        GameTile[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            if (tile == null) return;
+            chunk = new GameTile[CHUNK_AREA];
+            chunks[chunkIndex] = chunk;
+            allocatedChunks++;
+        }
+        int local = WorldChunks.localIndex(x, y);
+        if (chunk[local] == null && tile != null) {
+            chunkTiles[chunkIndex]++;
+        } else if (chunk[local] != null && tile == null) {
+            release(chunkIndex, local);
+            return;
+        }
+        chunk[local] = tile;
+    }
+
+    /**
+     * Removes the tile at the coordinates if it holds the object, releasing its chunk
+     * once the chunk has no tiles left
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @param content Object expected in the tile, null removes the tile whatever it holds
+     * @return True if the tile was removed
+     */
+    public boolean clear(int x, int y, GameObject content) {
+        if (!contains(x, y)) return false;
+        int chunkIndex = chunkIndex(x, y);
+        GameTile[] chunk = chunks[chunkIndex];
+        if (chunk == null) return false;
+        int local = WorldChunks.localIndex(x, y);
+        GameTile tile = chunk[local];
+        if (tile == null || (content != null && tile.getContent() != content)) return false;
+        tile.setContent(null);
+        release(chunkIndex, local);
+        return true;
+    }
+
+    private void release(int chunkIndex, int local) {
+        chunks[chunkIndex][local] = null;
+        if (--chunkTiles[chunkIndex] == 0) {
+            chunks[chunkIndex] = null;
+            allocatedChunks--;
+        }
+    }
+
+    /**
+     * Gets the content of the tile at the coordinates without allocating anything
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return GameObject or null
+     */
+    public GameObject getContent(int x, int y) {
+        GameTile tile = get(x, y);
+        return tile == null ? null : tile.getContent();
+    }
+
+    public int getChunksX() { return chunksX; }
+
+    public int getChunksY() { return chunksY; }
+
+    public int getAllocatedChunkCount() { return allocatedChunks; }
+
+    public boolean isChunkAllocated(int chunkX, int chunkY) {
+        if (chunkX < 0 || chunkX >= chunksX || chunkY < 0 || chunkY >= chunksY) return false;
+        return chunks[chunkY * chunksX + chunkX] != null;
+    }
+
+    /**
+     * Visits every allocated chunk in row-major order
+     * @param visitor Callback receiving chunk coordinates
+     */
+    public void forEachAllocatedChunk(ChunkVisitor visitor) {
+        for (int cy = 0; cy < chunksY; cy++) {
+            for (int cx = 0; cx < chunksX; cx++) {
+                if (chunks[cy * chunksX + cx] != null) {
+                    visitor.visit(cx, cy);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits every existing tile in row-major order (within each chunk row)
+     * @param action Callback receiving the tile
+     */
+    public void forEachTile(Consumer<GameTile> action) {
+        for (int cy = 0; cy < chunksY; cy++) {
+            int y0 = cy * CHUNK_SIZE;
+            int y1 = Math.min(height, y0 + CHUNK_SIZE);
+            for (int y = y0; y < y1; y++) {
+                for (int cx = 0; cx < chunksX; cx++) {
+                    GameTile[] chunk = chunks[cy * chunksX + cx];
+                    if (chunk == null) continue;
+                    int x0 = cx * CHUNK_SIZE;
+                    int x1 = Math.min(width, x0 + CHUNK_SIZE);
+                    for (int x = x0; x < x1; x++) {
+                        GameTile tile = chunk[WorldChunks.localIndex(x, y)];
+                        if (tile != null) {
+                            action.accept(tile);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts tiles that hold a game object
+     * @return Number of occupied tiles
+     */
+    public int countOccupied() {
+        int[] count = {0};
+        forEachTile(tile -> {
+            if (tile.getContent() != null) count[0]++;
+        });
+        return count[0];
+    }
+}
@@ -0,0 +1,293 @@
+package metroline.core.world.tiles;
+
+import java.io.Serializable;
+
+import static metroline.core.world.tiles.WorldChunks.CHUNK_AREA;
+import static metroline.core.world.tiles.WorldChunks.CHUNK_MASK;
+import static metroline.core.world.tiles.WorldChunks.CHUNK_SHIFT;
+
+/**
+ * Primitive-backed, chunked terrain storage (struct of arrays).
+ * The layer is split into {@link WorldChunks#CHUNK_SIZE}-square chunks. A chunk is only allocated
+ * when one of its tiles gets a non-default value, so empty default land costs nothing;
+ * reads from unallocated chunks return the defaults (perm 0, no water, zero economy values).
+ * Inside a chunk every attribute lives in its own array, water is a bitmask.
+ * {@link WorldTile} is only a view over one index of this layer.
+ * <p>
+ * Indices returned by {@link #index(int, int)} are opaque: they encode the chunk and the
+ * position inside it and are only meant to be passed back to the accessors of this layer.
+ * @author Tesmio
+ */
+public class TerrainLayer implements Serializable {
+    private static final long serialVersionUID = 2L;
+    private static final int LOCAL_BITS = CHUNK_SHIFT * 2;
+    private static final int LOCAL_MASK = CHUNK_AREA - 1;
+
+    private final int width;
+    private final int height;
+    private final int chunksX;
+    private final int chunksY;
+    private final Chunk[] chunks;
+    private int allocatedChunks;
+
+    /**
+     * Storage of one chunk. Economy attributes (grass, ability to pay, passengers)
+     * are allocated on the first non-zero write.
+     */
+    private static final class Chunk implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final float[] perm = new float[CHUNK_AREA];
+        final byte[] waterDepth = new byte[CHUNK_AREA]; // 0 (край реки) - 255 (центр)
+        final long[] water = new long[CHUNK_AREA >> 6];
+        int waterCount;
+
+        float[] grassValue;
+        float[] abilityPay;
+        float[] passengerCount;
+    }
+
+    public TerrainLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.chunksX = WorldChunks.chunksFor(width);
+        this.chunksY = WorldChunks.chunksFor(height);
+        this.chunks = new Chunk[chunksX * chunksY];
+    }
+
+    /**
+     * Gets the width of the layer
+     * @return Width in tiles
+     */
+    public int getWidth() { return width; }
+
+    /**
+     * Gets the height of the layer
+     * @return Height in tiles
+     */
+    public int getHeight() { return height; }
+
+    /**
+     * Gets the number of tiles in the layer
+     * @return width * height
+     */
+    public int size() { return width * height; }
+
+    /**
+     * Converts tile coordinates to an index into this layer
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return Opaque index for the accessors of this layer
+     */
+    public int index(int x, int y) {
+        int chunk = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+        return (chunk << LOCAL_BITS) | WorldChunks.localIndex(x, y);
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Creates a lightweight tile view over the given coordinates
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return WorldTile view backed by this layer
+     */
+    public WorldTile view(int x, int y) {
+        return new WorldTile(this, (short) x, (short) y);
+    }
+
+    private Chunk chunkOf(int index) {
+        return chunks[index >>> LOCAL_BITS];
+    }
+
+    // Synchronized: parallel generation stages allocate chunks from several threads
+    private synchronized Chunk allocate(int index) {
+        int chunkIndex = index >>> LOCAL_BITS;
+        Chunk chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new Chunk();
+            chunks[chunkIndex] = chunk;
+            allocatedChunks++;
+        }
+        return chunk;
+    }
+
+    public float getPerm(int index) {
+        Chunk chunk = chunkOf(index);
+        return chunk == null ? 0f : chunk.perm[index & LOCAL_MASK];
+    }
+
+    public void setPerm(int index, float value) {
+        Chunk chunk = chunkOf(index);
+        if (chunk == null) {
+            if (value == 0f) return;
+            chunk = allocate(index);
+        }
+        chunk.perm[index & LOCAL_MASK] = value;
+    }
+
+    public boolean isWater(int index) {
+        Chunk chunk = chunkOf(index);
+        if (chunk == null) return false;
+        int local = index & LOCAL_MASK;
+        return (chunk.water[local >> 6] & (1L << local)) != 0;
+    }
+
+    public void setWater(int index, boolean value) {
+        Chunk chunk = chunkOf(index);
+        if (chunk == null) {
+            if (!value) return;
+            chunk = allocate(index);
+        }
+        int local = index & LOCAL_MASK;
+        long bit = 1L << local;
+        boolean current = (chunk.water[local >> 6] & bit) != 0;
+        if (current == value) return;
+        if (value) {
+            chunk.water[local >> 6] |= bit;
+            chunk.waterCount++;
+        } else {
+            chunk.water[local >> 6] &= ~bit;
+            chunk.waterCount--;
+        }
+    }
+
+    public float getWaterDepth(int index) {
+        Chunk chunk = chunkOf(index);
+        return chunk == null ? 0f : (chunk.waterDepth[index & LOCAL_MASK] & 0xFF) / 255f;
+    }
+
+    public void setWaterDepth(int index, float depth) {
+        float clamped = Math.min(1, Math.max(0, depth));
+        byte quantized = (byte) Math.round(clamped * 255);
+        Chunk chunk = chunkOf(index);
+        if (chunk == null) {
+            if (quantized == 0) return;
+            chunk = allocate(index);
+        }
+        chunk.waterDepth[index & LOCAL_MASK] = quantized;
+    }
+
+    public float getGrassValue(int index) {
+        Chunk chunk = chunkOf(index);
+        return chunk == null || chunk.grassValue == null ? 0f : chunk.grassValue[index & LOCAL_MASK];
+    }
+
+    public void setGrassValue(int index, float value) {
+        Chunk chunk = chunkOf(index);
+        if (chunk == null || chunk.grassValue == null) {
+            if (value == 0f) return;
+            chunk = allocate(index);
+            chunk.grassValue = new float[CHUNK_AREA];
+        }
+        chunk.grassValue[index & LOCAL_MASK] = value;
+    }
+
+    public float getAbilityPay(int index) {
+        Chunk chunk = chunkOf(index);
+        return chunk == null || chunk.abilityPay == null ? 0f : chunk.abilityPay[index & LOCAL_MASK];
+    }
+
+    public void setAbilityPay(int index, float value) {
+        Chunk chunk = chunkOf(index);
+        if (chunk == null || chunk.abilityPay == null) {
+            if (value == 0f) return;
+            chunk = allocate(index);
+            chunk.abilityPay = new float[CHUNK_AREA];
+        }
+        chunk.abilityPay[index & LOCAL_MASK] = value;
+    }
+
+    public float getPassengerCount(int index) {
+        Chunk chunk = chunkOf(index);
+        return chunk == null || chunk.passengerCount == null ? 0f : chunk.passengerCount[index & LOCAL_MASK];
+    }
+
+    public void setPassengerCount(int index, float value) {
+        Chunk chunk = chunkOf(index);
+        if (chunk == null || chunk.passengerCount == null) {
+            if (value == 0f) return;
+            chunk = allocate(index);
+            chunk.passengerCount = new float[CHUNK_AREA];
+        }
+        chunk.passengerCount[index & LOCAL_MASK] = value;
+    }
+
+    /**
+     * Copies all attributes of a tile into this layer
+     * @param index Target index
+     * @param tile Source tile (may be a view over another layer)
+     */
+    public void copyFrom(int index, WorldTile tile) {
+        setPerm(index, tile.getPerm());
+        setWater(index, tile.isWater());
+        setWaterDepth(index, tile.getWaterDepth());
+        setGrassValue(index, tile.getGrassValue());
+        setAbilityPay(index, tile.getAbilityPay());
+        setPassengerCount(index, tile.getPassengerCount());
+    }
+
+    // ---------------------------------------------------------------------
+    // Chunk iteration
+    // ---------------------------------------------------------------------
+
+    public int getChunksX() { return chunksX; }
+
+    public int getChunksY() { return chunksY; }
+
+    /**
+     * Gets the number of chunks that hold non-default terrain
+     * @return Allocated chunk count
+     */
+    public int getAllocatedChunkCount() { return allocatedChunks; }
+
+    /**
+     * Checks whether a chunk holds any non-default terrain
+     * @param chunkX Chunk column
+     * @param chunkY Chunk row
+     * @return False if every tile of the chunk is default land
+     */
+    public boolean isChunkAllocated(int chunkX, int chunkY) {
+        if (chunkX < 0 || chunkX >= chunksX || chunkY < 0 || chunkY >= chunksY) return false;
+        return chunks[chunkY * chunksX + chunkX] != null;
+    }
+
+    /**
+     * Checks whether a chunk contains at least one water tile
+     * @param chunkX Chunk column
+     * @param chunkY Chunk row
+     * @return True if the chunk has water
+     */
+    public boolean chunkHasWater(int chunkX, int chunkY) {
+        if (chunkX < 0 || chunkX >= chunksX || chunkY < 0 || chunkY >= chunksY) return false;
+        Chunk chunk = chunks[chunkY * chunksX + chunkX];
+        return chunk != null && chunk.waterCount > 0;
+    }
+
+    /**
+     * Copies the perm values of a chunk
+     * @param chunkX Chunk column
+     * @param chunkY Chunk row
+     * @return Copy indexed by {@link WorldChunks#localIndex(int, int)} or null if the chunk is unallocated
+     */
+    public float[] snapshotPerm(int chunkX, int chunkY) {
+        Chunk chunk = chunks[chunkY * chunksX + chunkX];
+        return chunk == null ? null : chunk.perm.clone();
+    }
+
+    /**
+     * Visits every allocated chunk in row-major order. Unallocated chunks are default land.
+     * @param visitor Callback receiving chunk coordinates
+     */
+    public void forEachAllocatedChunk(ChunkVisitor visitor) {
+        for (int cy = 0; cy < chunksY; cy++) {
+            for (int cx = 0; cx < chunksX; cx++) {
+                if (chunks[cy * chunksX + cx] != null) {
+                    visitor.visit(cx, cy);
+                }
+            }
+        }
+    }
+}
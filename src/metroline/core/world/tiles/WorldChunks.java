@@ -0,0 +1,36 @@
+package metroline.core.world.tiles;
+
+/**
+ * Chunk layout shared by the sparse world layers.
+ * The world is split into square chunks of {@link #CHUNK_SIZE} tiles; a chunk's storage
+ * is only allocated once one of its tiles differs from the default or holds content.
+ * @author Tesmio
+ */
+public final class WorldChunks {
+    public static final int CHUNK_SHIFT = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;   // 64
+    public static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    public static final int CHUNK_AREA = CHUNK_SIZE * CHUNK_SIZE;
+
+    private WorldChunks() {
+    }
+
+    /**
+     * Gets the number of chunks needed to cover the given number of tiles
+     * @param tiles Width or height in tiles
+     * @return Chunk count along that axis
+     */
+    public static int chunksFor(int tiles) {
+        return (tiles + CHUNK_MASK) >> CHUNK_SHIFT;
+    }
+
+    /**
+     * Gets the index of a tile inside its chunk
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return Local index, 0 <= index < CHUNK_AREA
+     */
+    public static int localIndex(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+    }
+}
@@ -10,15 +10,15 @@ import java.awt.*;
  * @author Tesmio
  */
 public class WorldTile extends Tile {
-    private float perm; // 0 = can build, 1 = cannot build
     private static int baseTileColorRGB = 0x6E6E6E; // (110,110,110)
     private transient Color cachedBaseTileColor; // создаётся лениво, 1 раз
-    private float grassValue;
-    private boolean isWater; // Новая переменная для воды
-    private float abilityPay; // Платежеспособность
-    private float passengerCount; // Количество пассажиров
     private static final Color RIVER_COLOR = new Color(70, 130, 180, 255);
-    private float waterDepth; // 0 (край реки) - 1 (центр)
+    /** Size of a terrain tile in static cache pixels */
+    public static final int TILE_SIZE = 16;
+
+    // Данные тайла живут в TerrainLayer, тайл - только view на индекс
+    private final TerrainLayer terrain;
+    private final int index;
 
     private static final int WATER_STEPS = 64;
     private static final Color[] WATER_PALETTE = new Color[WATER_STEPS];
@@ -34,23 +34,45 @@ public class WorldTile extends Tile {
         }
     }
     public WorldTile() {
-        super((short) 0, (short) 0, (byte) 16);
+        this((short) 0, (short) 0);
     }
+
+    /**
+     * Creates a detached tile backed by its own single-tile layer
+     */
     public WorldTile(short x, short y) {
-        super(x, y, (byte) 16);
+        super(x, y, (byte) TILE_SIZE);
+        this.terrain = new TerrainLayer(1, 1);
+        this.index = 0;
     }
 
     public WorldTile(short x, short y, float perm, boolean isWater, float abilityPay, int passengerCount, int rgbColor) {
-        super(x, y, (byte) 16);
-        this.perm = perm;
-        this.isWater = isWater;
-        this.abilityPay = abilityPay;
-        this.passengerCount = passengerCount;
-        this.baseTileColorRGB = rgbColor;
+        this(x, y);
+        setPerm(perm);
+        setWater(isWater);
+        setAbilityPay(abilityPay);
+        setPassengerCount(passengerCount);
+        baseTileColorRGB = rgbColor;
         //  this.baseTileColor = color;
     }
+
+    /**
+     * Creates a view over a tile of the given terrain layer
+     * @param terrain Backing layer
+     * @param x X coordinate
+     * @param y Y coordinate
+     */
+    public WorldTile(TerrainLayer terrain, short x, short y) {
+        super(x, y, (byte) TILE_SIZE);
+        this.terrain = terrain;
+        this.index = terrain.index(x, y);
+    }
+
     public void setWaterDepth(float depth) {
-        this.waterDepth = Math.min(1, Math.max(0, depth));
+        terrain.setWaterDepth(index, depth);
+    }
+    public float getWaterDepth() {
+        return terrain.getWaterDepth(index);
     }
 //    public Color getAnimatedWaterColor() {
 //        if (!isWater()) {
@@ -81,10 +103,11 @@ public class WorldTile extends Tile {
         return new WorldTile(getX(), getY());
     }
     public Color getCurrentColor() {
-        if(isWater) {
+        if(isWater()) {
             return getAnimatedWaterColor();
         }
         Color baseColor = getBaseTileColor();
+        float perm = getPerm();
         int range = 50; // Должно совпадать с тем, что используется в draw()
         int red = Math.max(0, Math.min(255, baseColor.getRed() - (int)(perm * range)));
         int green = Math.max(0, Math.min(255, baseColor.getGreen() - (int)(perm * range)));
@@ -101,18 +124,21 @@ public class WorldTile extends Tile {
      * Gets the building permission value
      * @return Permission value (0-1)
      */
-    public float getPerm() { return perm; }
+    public float getPerm() { return terrain.getPerm(index); }
 
     /**
      * Sets the building permission value
      * @param perm New permission value (0-1)
      */
-    public void setPerm(float perm) { this.perm = perm; }
+    public void setPerm(float perm) { terrain.setPerm(index, perm); }
 
     public void setBaseTileColor(int rgb) {
         this.baseTileColorRGB = rgb;
         this.cachedBaseTileColor = null; // сброс кеша
     }
+    public static int getStaticBaseTileRGB() {
+        return baseTileColorRGB;
+    }
     public static Color getStaticBaseTileColor() {
  return new Color(baseTileColorRGB);
     }
@@ -122,20 +148,20 @@ public class WorldTile extends Tile {
         }
         return cachedBaseTileColor;
     }
-    public boolean isWater() { return isWater; }
-    public void setWater(boolean water) { this.isWater = water; }
+    public boolean isWater() { return terrain.isWater(index); }
+    public void setWater(boolean water) { terrain.setWater(index, water); }
 
-    public float getAbilityPay() { return abilityPay; }
-    public void setAbilityPay(float abilityPay) { this.abilityPay = abilityPay; }
+    public float getAbilityPay() { return terrain.getAbilityPay(index); }
+    public void setAbilityPay(float abilityPay) { terrain.setAbilityPay(index, abilityPay); }
 
-    public float getPassengerCount() { return passengerCount; }
-    public void setPassengerCount(float passengerCount) { this.passengerCount = passengerCount; }
+    public float getPassengerCount() { return terrain.getPassengerCount(index); }
+    public void setPassengerCount(float passengerCount) { terrain.setPassengerCount(index, passengerCount); }
     public float getGrassValue() {
-        return grassValue;
+        return terrain.getGrassValue(index);
     }
 
     public void setGrassValue(float grassValue) {
-        this.grassValue = Math.max(0, Math.min(1, grassValue));
+        terrain.setGrassValue(index, Math.max(0, Math.min(1, grassValue)));
     }
 //
     public void draw(Graphics g, int offsetX, int offsetY, float zoom) {
@@ -144,7 +170,7 @@ public class WorldTile extends Tile {
         int drawY = (int)((y * size + offsetY) * zoom);
         Graphics2D g2d = (Graphics2D)g;
 
-        if (isWater) {
+        if (isWater()) {
                 drawRealisticWater(g2d, drawX, drawY, drawSize);
         } else {
             // Обычная отрисовка земли
@@ -161,6 +187,7 @@ public class WorldTile extends Tile {
 
     private void drawLand(Graphics2D g, int x, int y, int size) {
         Color baseColor = getBaseTileColor();
+        float perm = getPerm();
         int range = 50;
         int red = Math.max(0, Math.min(255, baseColor.getRed() - (int)(perm * range)));
         int green = Math.max(0, Math.min(255, baseColor.getGreen() - (int)(perm * range)));
@@ -56,6 +56,10 @@ public class KeyboardController {
                 if (!pressedKeys.contains(e.getKeyCode())) {
                     pressedKeys.add(e.getKeyCode());
                     handleKeyPressed(e);
+                    // Будим цикл кадров: зажатая стрелка запускает панорамирование
+                    if (mainFrame.getCurrentScreen() instanceof GameWorldScreen worldScreen) {
+                        worldScreen.requestFrame();
+                    }
                 }
                 break;
 
@@ -66,14 +70,16 @@ public class KeyboardController {
         }
         return false;
     }
-    public void updatePanArroyKeys(GameWorldScreen gScreen) {
+    public boolean updatePanArroyKeys(GameWorldScreen gScreen) {
         if (isTextFieldFocused()) {
-            return;
+            return false;
         }
         // Текущее время в наносекундах
         long currentTime = System.nanoTime();
         // Время, прошедшее с прошлого обновления, в секундах
         float deltaTime = (currentTime - gScreen.lastUpdateTime2) / 1_000_000_000.0f; // наносек → сек
+        // Кадры идут только по запросу - после простоя шаг ограничен
+        deltaTime = Math.min(deltaTime, 0.1f);
         gScreen.lastUpdateTime2 = currentTime;
 
         // Желаемая скорость движения: пикселей в секунду (на экране)
@@ -111,7 +117,9 @@ public class KeyboardController {
                     gScreen.getOffsetX() + (int) moveX,
                     gScreen.getOffsetY() + (int) moveY
             );
+            return true;
         }
+        return false;
     }
     private void handleKeyPressed(KeyEvent e) {
         if (isTextFieldFocused()) {
@@ -144,6 +152,22 @@ public class KeyboardController {
             return;
         }
 
+        if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_P) {
+            if(mainFrame.getCurrentScreen() instanceof GameWorldScreen worldScreen) {
+                worldScreen.dumpFrameProfile();
+            }
+            e.consume();
+            return;
+        }
+
+        if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_W) {
+            if(mainFrame.getCurrentScreen() instanceof GameWorldScreen worldScreen) {
+                worldScreen.toggleAnimatedWater();
+            }
+            e.consume();
+            return;
+        }
+
         if (e.getKeyCode() == KeyEvent.VK_F11) {
             mainFrame.toggleFullscreen();
             e.consume();
@@ -64,6 +64,24 @@ public abstract class GameObject implements Serializable, Selectable {
     }
     public void setUniqueId(long uniqueId) {
         this.uniqueId = uniqueId;
+        reserveUniqueId(uniqueId);
+    }
+
+    /**
+     * Выдает новый уникальный ID
+     * @return следующий свободный ID
+     */
+    public static long nextUniqueId() {
+        return idGenerator.incrementAndGet();
+    }
+
+    /**
+     * Сдвигает генератор так, чтобы новые объекты не получили уже занятый ID
+     * (например, после загрузки сохранения)
+     * @param usedId занятый ID
+     */
+    public static void reserveUniqueId(long usedId) {
+        idGenerator.accumulateAndGet(usedId, Math::max);
     }
     public World getWorld() {
         return world;
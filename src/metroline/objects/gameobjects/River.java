@@ -1,6 +1,7 @@
 package metroline.objects.gameobjects;
 
 import metroline.core.world.World;
+import metroline.core.world.WorldLayer;
 import metroline.input.selection.Selectable;
 import metroline.input.selection.SelectionManager;
 import metroline.screens.render.RiverRender;
@@ -46,6 +47,7 @@ public class River extends GameObject {
 
     public void setRiverColor(Color color) {
         this.riverColor = color;
+        markChanged();
     }
 
     public float getWidth() {
@@ -54,6 +56,13 @@ public class River extends GameObject {
 
     public void setWidth(float width) {
         this.width = width;
+        markChanged();
+    }
+
+    private void markChanged() {
+        if (getWorld() != null) {
+            getWorld().markLayerChanged(WorldLayer.RIVERS);
+        }
     }
 
     /**
@@ -121,6 +130,11 @@ public class River extends GameObject {
      * Check if coordinates are on the calculated river path
      */
     public boolean isOnPath(int x, int y) {
+        World world = getWorld();
+        if (world != null && x >= 0 && x < world.getWidth() && y >= 0 && y < world.getHeight()
+                && world.getRiverIndex().contains(this)) {
+            return world.getRiverIndex().isAt(x, y, this);
+        }
         for (PathPoint p : calculatedPath) {
             if (p.getX() == x && p.getY() == y) {
                 return true;
@@ -136,6 +150,9 @@ public class River extends GameObject {
         calculatedPath.clear();
 
         if (points.size() < 2) {
+            if (getWorld() != null) {
+                getWorld().onRiverPathChanged(this);
+            }
             return;
         }
 
@@ -155,6 +172,9 @@ public class River extends GameObject {
         }
 
         RiverRender.clearCacheForRiver(this);
+        if (getWorld() != null) {
+            getWorld().onRiverPathChanged(this);
+        }
     }
 
     /**
@@ -2,7 +2,9 @@ package metroline.objects.gameobjects;
 
 import metroline.core.world.GameWorld;
 import metroline.core.world.World;
-import metroline.core.world.tiles.WorldTile;
+import metroline.core.world.WorldLayer;
+import metroline.core.world.index.PathTileIndex;
+import metroline.core.world.tiles.TerrainLayer;
 import metroline.input.selection.SelectionManager;
 import metroline.objects.enums.Direction;
 import metroline.objects.enums.StationColors;
@@ -56,6 +58,9 @@ public class Station extends GameObject {
      * @param label StationLabel to associate with this station
      */
     public void setLabel(StationLabel label) {
+        if (this.label != label && getWorld() != null) {
+            getWorld().markLayerChanged(WorldLayer.LABELS);
+        }
         this.label = label;
     }
     /**
@@ -168,6 +173,8 @@ public class Station extends GameObject {
      */
     public void setStationColor(StationColors stationColor) {
         this.color = stationColor;
+        markAreaDirty();
+        markColorChanged();
     }
     /**
      * Sets the station color
@@ -179,6 +186,27 @@ public class Station extends GameObject {
      */
     public void setColor(Color color) {
         this.color = StationColors.fromColor(color);
+        markAreaDirty();
+        markColorChanged();
+    }
+
+    /**
+     * Invalidates the drawn stations and tunnels, tunnels take the colour of their start station
+     */
+    private void markColorChanged() {
+        if (getWorld() != null) {
+            getWorld().markLayerChanged(WorldLayer.STATIONS);
+            getWorld().markLayerChanged(WorldLayer.TUNNELS);
+        }
+    }
+
+    /**
+     * Queues this station and its neighbours for type recomputation
+     */
+    private void markAreaDirty() {
+        if (getWorld() != null && getWorld().getStationAt(x, y) == this) {
+            getWorld().markStationAreaDirty(x, y);
+        }
     }
     /**
      * Gets the station type
@@ -202,6 +230,7 @@ public class Station extends GameObject {
 
         // Trigger repaint if world exists
         if (getWorld() != null) {
+            getWorld().markLayerChanged(WorldLayer.STATIONS);
             // Log type change
             MetroLogger.logInfo("[Station::setType] Changed station type to: " + newType);
         }
@@ -247,9 +276,14 @@ public class Station extends GameObject {
             connections.remove(dirToRemove);
             other.connections.remove(dirToRemove.getOpposite());
 
-            // Update types for both stations
-            this.updateType();
-            other.updateType();
+            // Типы пересчитываются пакетно в World.flushDirtyStations()
+            if (getWorld() != null) {
+                getWorld().markStationDirty(this);
+                getWorld().markStationDirty(other);
+            } else {
+                this.updateType();
+                other.updateType();
+            }
         }
     }
 
@@ -314,8 +348,11 @@ public class Station extends GameObject {
         }
     }
     public boolean isOnWater() {
-        WorldTile tile = getWorld().getWorldTile(getX(), getY());
-        return tile != null && tile.isWater();
+        World world = getWorld();
+        if (x < 0 || x >= world.getWidth() || y < 0 || y >= world.getHeight()) return false;
+        // Прямо из слоя рельефа, без объекта-представления тайла на каждый кадр
+        TerrainLayer terrain = world.getTerrain();
+        return terrain.isWater(terrain.index(x, y));
     }
 
 
@@ -369,10 +406,14 @@ public class Station extends GameObject {
         double riverWidth = 20.0;
         double riverHalfWidth = riverWidth / 2.0;
 
-        // Перебираем все реки в мире
-        // (Предполагаем, что у GameWorld есть метод getRivers() или getGameObjects())
-        // Если getRivers() нет, используйте world.getGameObjects().stream().filter(o -> o instanceof River)...
-        for (River river : gw.getRivers()) {
+        // Кандидаты берём из индекса занятости: центр станции в пределах 4px от линии реки
+        // означает, что клетка станции лежит на рассчитанном (Брезенхем) пути этой реки
+        if (x < 0 || x >= gw.getWidth() || y < 0 || y >= gw.getHeight()) return false;
+        PathTileIndex<River> riverIndex = gw.getRiverIndex();
+        int candidates = riverIndex.countAt(x, y);
+
+        for (int c = 0; c < candidates; c++) {
+            River river = riverIndex.getAt(x, y, c);
             List<RiverPoint> points = river.getPoints();
             if (points.size() < 2) continue;
 
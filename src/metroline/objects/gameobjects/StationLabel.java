@@ -1,18 +1,23 @@
 package metroline.objects.gameobjects;
 
 import metroline.core.world.World;
+import metroline.core.world.WorldLayer;
 import metroline.input.selection.SelectionManager;
+import metroline.screens.render.LabelRender;
 import metroline.screens.worldscreens.normal.GameWorldScreen;
 
 import java.awt.*;
+import java.util.Objects;
 
 /**
- * TODO Вынести рендер в отдельный класс
+ * Station label. Rendering is done by {@link LabelRender}.
  */
 public class StationLabel extends GameObject {
     private String text;
     private GameObject parentStation;
     private boolean visible = true;
+    // Меняется при смене текста, по нему рендер сбрасывает раскладку
+    private transient int textVersion;
 
 
     public StationLabel() {
@@ -30,6 +35,9 @@ public class StationLabel extends GameObject {
     }
 
     public void setVisible(boolean visible) {
+        if (this.visible != visible && getWorld() != null) {
+            getWorld().markLayerChanged(WorldLayer.LABELS);
+        }
         this.visible = visible;
     }
     public String getText() {
@@ -37,14 +45,32 @@ public class StationLabel extends GameObject {
     }
 
     public void setText(String text) {
+        if (!Objects.equals(this.text, text)) {
+            textVersion++;
+            if (getWorld() != null) {
+                getWorld().markLayerChanged(WorldLayer.LABELS);
+            }
+        }
         this.text = text;
     }
 
+    /**
+     * Gets the text version, changed whenever the text changes
+     * @return Version to compare cached text layouts against
+     */
+    public int getTextVersion() {
+        return textVersion;
+    }
+
     public GameObject getParentGameObject() {
         return parentStation;
     }
     public void setParentGameObject(GameObject obj) {
+        GameObject previous = this.parentStation;
         this.parentStation = obj;
+        if (previous != obj && getWorld() != null) {
+            getWorld().onLabelParentChanged(this, previous);
+        }
     }
     public long getParentStationId() {
         return parentStation != null ? parentStation.getUniqueId() : -1;
@@ -85,89 +111,7 @@ public class StationLabel extends GameObject {
 
     @Override
     public void draw(Graphics2D g, int offsetX, int offsetY, float zoom) {
-        if (!visible) {
-            return;
-        }
-
-        if (parentStation != null) {
-            int relX = getX() - parentStation.getX();
-            int relY = getY() - parentStation.getY();
-
-            int baseOffsetX = 32 + 8;
-            int baseOffsetY = 20;
-
-            FontMetrics fm = g.getFontMetrics();
-            int textWidth = fm.stringWidth(text);
-            int textHeight = fm.getHeight();
-
-            boolean isDiagonal = Math.abs(relX) == 1 && Math.abs(relY) == 1;
-
-            // Обработка диагональных позиций
-            if (isDiagonal) {
-                if (relX == -1 && relY == -1) { // Слева-сверху
-                    baseOffsetX = -textWidth - 8;
-                    baseOffsetY = -textHeight + 4;
-                } else if (relX == 1 && relY == -1) { // Справа-сверху
-                    baseOffsetX = 32 + 8;
-                    baseOffsetY = -textHeight + 4;
-                } else if (relX == -1 && relY == 1) { // Слева-снизу
-                    baseOffsetX = -textWidth - 8;
-                    baseOffsetY = textHeight + 32;
-                } else if (relX == 1 && relY == 1) { // Справа-снизу
-                    baseOffsetX = 32 + 8;
-                    baseOffsetY = textHeight + 32;
-                }
-            }
-            // Обработка ортогональных позиций
-            else if (relX == -1) {
-                baseOffsetX = -textWidth - 8;
-                baseOffsetY = 20;
-            } else if (relX == 1) {
-                baseOffsetX = 32 + 8;
-                baseOffsetY = 20;
-            } else if (relX == 0) {
-                baseOffsetX = (32 - textWidth) / 2;
-                if (relY == -1) {
-                    baseOffsetY = -textHeight + 4;
-                } else if (relY == 1) {
-                    baseOffsetY = textHeight + 32;
-                }
-            }
-
-            // Рассчитываем позицию текста
-            int drawX = (int) ((parentStation.getX() * 32 + offsetX + baseOffsetX) * zoom);
-            int drawY = (int) ((parentStation.getY() * 32 + offsetY + baseOffsetY) * zoom);
-
-            // Настройки внешнего вида
-            Color textColor = isSelected() ? Color.RED : new Color(30, 30, 30);
-            Color bgColor = new Color(255, 255, 255, 180);
-
-            int fontSize = (int) (12 * zoom);
-            fontSize = Math.max(fontSize, 8);
-            Font font = new Font("Arial", Font.PLAIN, fontSize);
-            g.setFont(font);
-
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-            // Рисуем подложку
-            g2d.setColor(bgColor);
-            int round = (int) (4 * zoom);
-            g2d.fillRoundRect(drawX - 3, drawY - fm.getAscent() - 2,
-                    textWidth + 6, textHeight + 4, round, round);
-
-            // Рисуем текст
-            g2d.setColor(textColor);
-            g2d.drawString(text, drawX, drawY);
-
-            if (isSelected()) {
-                g2d.setColor(Color.YELLOW);
-                g2d.setStroke(new BasicStroke(2 * zoom));
-                g2d.drawRoundRect(drawX - 5, drawY - fm.getAscent() - 4,
-                        textWidth + 10, textHeight + 8, round + 2, round + 2);
-            }
-
-        }
+        LabelRender.drawLabel(this, g, offsetX, offsetY, zoom);
     }
     public boolean isSelected() {
         return SelectionManager.getInstance().isSelected(this);
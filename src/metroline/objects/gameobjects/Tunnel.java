@@ -1,6 +1,7 @@
 package metroline.objects.gameobjects;
 
 import metroline.core.world.World;
+import metroline.core.world.WorldLayer;
 import metroline.core.world.tiles.WorldTile;
 import metroline.input.selection.SelectionManager;
 import metroline.objects.enums.TunnelType;
@@ -26,6 +27,8 @@ public class Tunnel extends GameObject {
     private List<PathPoint> path = new ArrayList<>();
     private PathPoint pathPoint; // For single bend tunnels
     private Color tunnelColor;
+    // Меняется при каждом пересчете пути или смене типа, по нему рендер сбрасывает кэш форм
+    private transient int geometryVersion;
 
     public Tunnel() {
         super(0, 0);
@@ -47,6 +50,12 @@ public class Tunnel extends GameObject {
         return tunnelColor;
     }
     public void setType(TunnelType type) {
+        if (this.type != type) {
+            geometryVersion++;
+            if (getWorld() != null) {
+                getWorld().markLayerChanged(WorldLayer.TUNNELS);
+            }
+        }
         this.type = type;
     }
 
@@ -72,6 +81,12 @@ public class Tunnel extends GameObject {
      */
     public List<PathPoint> getPath() { return path; }
 
+    /**
+     * Gets the geometry version, changed whenever the path or the type changes
+     * @return Version to compare cached render geometry against
+     */
+    public int getGeometryVersion() { return geometryVersion; }
+
     public double getPathLenth() {
         return getPath().size();
     }
@@ -94,6 +109,11 @@ public class Tunnel extends GameObject {
 
         // Строим путь через точку изгиба
         addBendPath(x1, y1, pathPoint.getX(), pathPoint.getY(), x2, y2);
+        geometryVersion++;
+
+        if (getWorld() != null) {
+            getWorld().onTunnelPathChanged(this);
+        }
     }
 
     /**
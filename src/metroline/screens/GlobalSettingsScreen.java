@@ -3,6 +3,7 @@ package metroline.screens;
 import metroline.MainFrame;
 import metroline.core.soundengine.SoundEngine;
 import metroline.input.KeyboardController;
+import metroline.screens.worldscreens.normal.GameWorldScreen;
 import metroline.util.localizate.LngUtil;
 import metroline.util.serialize.GlobalSettings;
 import metroline.util.ui.MetrolineButton;
@@ -25,6 +26,8 @@ public class GlobalSettingsScreen extends GameScreen {
 
     private MetrolineSlider pngScaleSlider;
     private MetrolineLabel pngScaleLabel;
+    private MetrolineSlider fpsCapSlider;
+    private MetrolineLabel fpsCapLabel;
 
     public GlobalSettingsScreen(MainFrame parent) {
         super(parent);
@@ -156,6 +159,36 @@ public class GlobalSettingsScreen extends GameScreen {
         centerPanel.add(pngScalePanel);
         centerPanel.add(Box.createVerticalStrut(30));
 
+        // FPS Cap Slider Panel
+        JPanel fpsCapPanel = new JPanel(new BorderLayout(10, 0));
+        fpsCapPanel.setOpaque(false);
+        fpsCapPanel.setMaximumSize(new Dimension(400, 40));
+
+        MetrolineLabel fpsCapTitle = new MetrolineLabel("global_settings.fps_cap");
+        fpsCapTitle.setForeground(Color.WHITE);
+        fpsCapTitle.setFont(new Font("Sans Serif", Font.PLAIN, 16));
+
+        fpsCapLabel = new MetrolineLabel(formatFpsCap(GlobalSettings.getFpsCap()));
+        fpsCapLabel.setForeground(Color.WHITE);
+        fpsCapLabel.setFont(new Font("Sans Serif", Font.PLAIN, 16));
+
+        fpsCapSlider = new MetrolineSlider(LngUtil.translatable("global_settings.fps_cap_desc"), 0.0f, 240.0f, (float) GlobalSettings.getFpsCap(), 30.0f);
+        fpsCapSlider.addChangeListener(e -> {
+            int fpsCap = Math.round(fpsCapSlider.getValue());
+            fpsCapLabel.setText(formatFpsCap(fpsCap));
+            GlobalSettings.setFpsCap(fpsCap);
+            if (GameWorldScreen.INSTANCE != null) {
+                GameWorldScreen.INSTANCE.setFpsCap(fpsCap);
+            }
+        });
+
+        fpsCapPanel.add(fpsCapTitle, BorderLayout.WEST);
+        fpsCapPanel.add(fpsCapSlider, BorderLayout.CENTER);
+        fpsCapPanel.add(fpsCapLabel, BorderLayout.EAST);
+        fpsCapPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        centerPanel.add(fpsCapPanel);
+        centerPanel.add(Box.createVerticalStrut(30));
+
         // Buttons
         JPanel buttonPanel = new JPanel();
         buttonPanel.setLayout(new BoxLayout(buttonPanel, BoxLayout.Y_AXIS));
@@ -223,6 +256,10 @@ public class GlobalSettingsScreen extends GameScreen {
         parent.updateLanguage();
     }
 
+    private static String formatFpsCap(int fpsCap) {
+        return fpsCap == 0 ? LngUtil.translatable("global_settings.fps_on_demand") : String.valueOf(fpsCap);
+    }
+
     private void updateGlobalVolume(float volume) throws LineUnavailableException {
         SoundEngine soundEngine = SoundEngine.getInstance();
         soundEngine.setGlobalVolume(volume);           // обновляем глобальный множитель
@@ -0,0 +1,244 @@
+package metroline.screens.render;
+
+import metroline.input.selection.SelectionManager;
+import metroline.objects.gameobjects.GameObject;
+import metroline.objects.gameobjects.StationLabel;
+import metroline.util.collections.LongLruCache;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders station labels from cached text layouts.
+ * Every label keeps its laid out glyphs and metrics for the current font size; the entry is
+ * checked against the label's text version, so a renamed label is laid out again.
+ * Labels are drawn in batches: all plates, then all text, then selection outlines, so the
+ * colour and font are switched once per pass instead of once per label.
+ * @author Tesmio
+ */
+public class LabelRender {
+    private static final int CACHE_CAPACITY = 4096;
+    private static final int BASE_FONT_SIZE = 12;
+    private static final int MIN_FONT_SIZE = 8;
+
+    private static final Color TEXT_COLOR = new Color(30, 30, 30);
+    private static final Color SELECTED_TEXT_COLOR = Color.RED;
+    private static final Color PLATE_COLOR = new Color(255, 255, 255, 180);
+    private static final Color SELECTION_COLOR = Color.YELLOW;
+
+    // Контекст без трансформации: раскладка не зависит от зума графики
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, false);
+
+    private static final LongLruCache<CachedLabel> labelCache = new LongLruCache<>(CACHE_CAPACITY);
+    private static final Font[] fonts = new Font[64];
+    private static final List<CachedLabel> batch = new ArrayList<>();
+    // Графика только для замеров шрифта, экран для раскладки не нужен
+    private static Graphics2D measureGraphics;
+
+    private static class CachedLabel {
+        final StationLabel label;
+        final int textVersion;
+        final int fontSize;
+        final GlyphVector glyphs;
+        final int textWidth;
+        final int textHeight;
+        final int ascent;
+
+        // Позиция в текущем проходе отрисовки
+        int drawX;
+        int drawY;
+        boolean selected;
+
+        CachedLabel(StationLabel label, int textVersion, int fontSize, GlyphVector glyphs,
+                int textWidth, int textHeight, int ascent) {
+            this.label = label;
+            this.textVersion = textVersion;
+            this.fontSize = fontSize;
+            this.glyphs = glyphs;
+            this.textWidth = textWidth;
+            this.textHeight = textHeight;
+            this.ascent = ascent;
+        }
+    }
+
+    private static int fontSize(float zoom) {
+        return Math.max((int) (BASE_FONT_SIZE * zoom), MIN_FONT_SIZE);
+    }
+
+    private static Font getFont(int size) {
+        if (size >= fonts.length) {
+            return new Font("Arial", Font.PLAIN, size);
+        }
+        Font font = fonts[size];
+        if (font == null) {
+            font = new Font("Arial", Font.PLAIN, size);
+            fonts[size] = font;
+        }
+        return font;
+    }
+
+    /**
+     * Gets the layout of the label text, laying it out again if the text or the font size changed
+     */
+    private static CachedLabel getCached(StationLabel label, int fontSize) {
+        CachedLabel cached = labelCache.get(label.getUniqueId());
+        if (cached != null && cached.label == label && cached.textVersion == label.getTextVersion()
+                && cached.fontSize == fontSize) {
+            return cached;
+        }
+        Font font = getFont(fontSize);
+        if (measureGraphics == null) {
+            measureGraphics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        }
+        FontMetrics fm = measureGraphics.getFontMetrics(font);
+        cached = new CachedLabel(label, label.getTextVersion(), fontSize,
+                font.createGlyphVector(FRC, label.getText()),
+                fm.stringWidth(label.getText()), fm.getHeight(), fm.getAscent());
+        labelCache.put(label.getUniqueId(), cached);
+        return cached;
+    }
+
+    /**
+     * Draws a single label
+     */
+    public static void drawLabel(StationLabel label, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
+        synchronized (LabelRender.class) {
+            batch.clear();
+            collect(label, offsetX, offsetY, zoom);
+            drawBatch(g2d, zoom);
+        }
+    }
+
+    /**
+     * Draws labels in batches
+     * @param labels Labels to draw, invisible and detached ones are skipped
+     */
+    public static void drawLabels(List<StationLabel> labels, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
+        drawLabels(labels, g2d, offsetX, offsetY, zoom, false);
+    }
+
+    /**
+     * Draws labels in batches
+     * @param labels Labels to draw, invisible and detached ones are skipped
+     * @param excludeSelected Skip the selected label, for layers that are not redrawn on selection
+     */
+    public static void drawLabels(List<StationLabel> labels, Graphics2D g2d, int offsetX, int offsetY, float zoom,
+            boolean excludeSelected) {
+        synchronized (LabelRender.class) {
+            batch.clear();
+            SelectionManager selection = SelectionManager.getInstance();
+            for (int i = 0; i < labels.size(); i++) {
+                StationLabel label = labels.get(i);
+                if (excludeSelected && selection.isSelected(label)) continue;
+                collect(label, offsetX, offsetY, zoom);
+            }
+            drawBatch(g2d, zoom);
+        }
+    }
+
+    private static void collect(StationLabel label, int offsetX, int offsetY, float zoom) {
+        GameObject parent = label.getParentGameObject();
+        if (!label.isVisible() || parent == null || label.getText() == null) return;
+
+        CachedLabel cached = getCached(label, fontSize(zoom));
+        int textWidth = cached.textWidth;
+        int textHeight = cached.textHeight;
+
+        int relX = label.getX() - parent.getX();
+        int relY = label.getY() - parent.getY();
+
+        int baseOffsetX = 32 + 8;
+        int baseOffsetY = 20;
+
+        boolean isDiagonal = Math.abs(relX) == 1 && Math.abs(relY) == 1;
+
+        // Обработка диагональных позиций
+        if (isDiagonal) {
+            baseOffsetX = relX == -1 ? -textWidth - 8 : 32 + 8;
+            baseOffsetY = relY == -1 ? -textHeight + 4 : textHeight + 32;
+        }
+        // Обработка ортогональных позиций
+        else if (relX == -1) {
+            baseOffsetX = -textWidth - 8;
+        } else if (relX == 0) {
+            baseOffsetX = (32 - textWidth) / 2;
+            if (relY == -1) {
+                baseOffsetY = -textHeight + 4;
+            } else if (relY == 1) {
+                baseOffsetY = textHeight + 32;
+            }
+        }
+
+        // Рассчитываем позицию текста
+        cached.drawX = (int) ((parent.getX() * 32 + offsetX + baseOffsetX) * zoom);
+        cached.drawY = (int) ((parent.getY() * 32 + offsetY + baseOffsetY) * zoom);
+        cached.selected = SelectionManager.getInstance().isSelected(label);
+        batch.add(cached);
+    }
+
+    private static void drawBatch(Graphics2D g2d, float zoom) {
+        if (batch.isEmpty()) return;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int round = (int) (4 * zoom);
+
+        // Подложки
+        g2d.setColor(PLATE_COLOR);
+        for (int i = 0; i < batch.size(); i++) {
+            CachedLabel cached = batch.get(i);
+            g2d.fillRoundRect(cached.drawX - 3, cached.drawY - cached.ascent - 2,
+                    cached.textWidth + 6, cached.textHeight + 4, round, round);
+        }
+
+        // Текст
+        boolean anySelected = false;
+        g2d.setColor(TEXT_COLOR);
+        for (int i = 0; i < batch.size(); i++) {
+            CachedLabel cached = batch.get(i);
+            if (cached.selected) {
+                anySelected = true;
+                continue;
+            }
+            g2d.drawGlyphVector(cached.glyphs, cached.drawX, cached.drawY);
+        }
+        if (!anySelected) return;
+
+        // Выделенные метки - редкость, рисуем их отдельно
+        Stroke originalStroke = g2d.getStroke();
+        g2d.setStroke(new BasicStroke(2 * zoom));
+        for (int i = 0; i < batch.size(); i++) {
+            CachedLabel cached = batch.get(i);
+            if (!cached.selected) continue;
+            g2d.setColor(SELECTED_TEXT_COLOR);
+            g2d.drawGlyphVector(cached.glyphs, cached.drawX, cached.drawY);
+            g2d.setColor(SELECTION_COLOR);
+            g2d.drawRoundRect(cached.drawX - 5, cached.drawY - cached.ascent - 4,
+                    cached.textWidth + 10, cached.textHeight + 8, round + 2, round + 2);
+        }
+        g2d.setStroke(originalStroke);
+    }
+
+    /**
+     * Очистка кэша
+     */
+    public static synchronized void clearCache() {
+        labelCache.clear();
+    }
+
+    /**
+     * Очистка кэша для конкретной метки
+     */
+    public static synchronized void clearCacheForLabel(StationLabel label) {
+        labelCache.remove(label.getUniqueId());
+    }
+
+    /**
+     * Получение размера кэша
+     */
+    public static synchronized int getCacheSize() {
+        return labelCache.size();
+    }
+}
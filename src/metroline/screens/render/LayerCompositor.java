@@ -0,0 +1,254 @@
+package metroline.screens.render;
+
+import metroline.util.debug.FrameProfiler;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.image.VolatileImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Composites the dynamic world from cached screen-sized layers.
+ * Every layer keeps its own surface and dirty flag: a clean layer is only blitted, a dirty one is
+ * redrawn by its painter first. A change of size or zoom makes every layer dirty. A pan by a whole
+ * number of screen pixels scrolls the surfaces instead and repaints only the exposed strips,
+ * so an idle frame is one blit per layer and an edit redraws only the layers it touched.
+ * Whatever changes every frame (selection, drag feedback) is drawn over the result by the caller.
+ * @author Tesmio
+ */
+public class LayerCompositor {
+    private static final int MAX_VALIDATE_ATTEMPTS = 3;
+
+    /**
+     * Draws the content of a layer
+     */
+    public interface LayerPainter {
+        /**
+         * @param g Graphics already scaled and translated to world units, cleared
+         */
+        void paint(Graphics2D g);
+    }
+
+    private static final class Layer {
+        final String name;
+        final LayerPainter painter;
+        final FrameProfiler.Phase phase;
+        VolatileImage image;
+        boolean dirty = true;
+        Area exposed; // открытые прокруткой полосы чистого слоя, в экранных пикселях
+
+        Layer(String name, LayerPainter painter, FrameProfiler.Phase phase) {
+            this.name = name;
+            this.painter = painter;
+            this.phase = phase;
+        }
+    }
+
+    private final Component owner;
+    private final FrameProfiler profiler;
+    private final List<Layer> layers = new ArrayList<>();
+
+    private int width;
+    private int height;
+    private float zoom;
+    private int offsetX;
+    private int offsetY;
+
+    // Статистика последнего кадра для отладки
+    private int layersRedrawn;
+
+    /**
+     * @param owner Component the layers are drawn on
+     * @param profiler Profiler charged with the time of every redrawn layer, may be null
+     */
+    public LayerCompositor(Component owner, FrameProfiler profiler) {
+        this.owner = owner;
+        this.profiler = profiler;
+    }
+
+    /**
+     * Adds a layer on top of the existing ones
+     * @param name Name for the debug overlay
+     * @param painter Layer content
+     * @param phase Profiler phase the redraw time is charged to
+     * @return Layer index for {@link #invalidate(int)}
+     */
+    public int addLayer(String name, LayerPainter painter, FrameProfiler.Phase phase) {
+        layers.add(new Layer(name, painter, phase));
+        return layers.size() - 1;
+    }
+
+    public void invalidate(int layer) {
+        layers.get(layer).dirty = true;
+    }
+
+    public void invalidateAll() {
+        for (Layer layer : layers) {
+            layer.dirty = true;
+        }
+    }
+
+    /**
+     * Sets the view the layers are drawn for. A size or zoom change invalidates all layers,
+     * an offset change scrolls them when the shift is a whole number of screen pixels.
+     * @param width Surface width in screen pixels
+     * @param height Surface height in screen pixels
+     * @param zoom View zoom
+     * @param offsetX View offset in world units
+     * @param offsetY View offset in world units
+     */
+    public void setView(int width, int height, float zoom, int offsetX, int offsetY) {
+        if (this.width == width && this.height == height && this.zoom == zoom
+                && this.offsetX == offsetX && this.offsetY == offsetY) {
+            return;
+        }
+        if (this.width == width && this.height == height && this.zoom == zoom) {
+            // Сдвиг в мировых единицах, на экране он умножается на зум
+            float shiftX = (offsetX - this.offsetX) * zoom;
+            float shiftY = (offsetY - this.offsetY) * zoom;
+            int dx = Math.round(shiftX);
+            int dy = Math.round(shiftY);
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            if (Math.abs(shiftX - dx) < 0.001f && Math.abs(shiftY - dy) < 0.001f
+                    && Math.abs(dx) < width && Math.abs(dy) < height) {
+                scroll(dx, dy);
+            } else {
+                invalidateAll();
+            }
+            return;
+        }
+        if (this.width != width || this.height != height) {
+            flush();
+        }
+        this.width = width;
+        this.height = height;
+        this.zoom = zoom;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        invalidateAll();
+    }
+
+    /**
+     * Moves the content of every clean layer and records the strips left uncovered
+     * @param dx Shift in screen pixels, positive to the right
+     * @param dy Shift in screen pixels, positive down
+     */
+    private void scroll(int dx, int dy) {
+        Area strips = new Area();
+        if (dx != 0) strips.add(new Area(new Rectangle(dx > 0 ? 0 : width + dx, 0, Math.abs(dx), height)));
+        if (dy != 0) strips.add(new Area(new Rectangle(0, dy > 0 ? 0 : height + dy, width, Math.abs(dy))));
+        for (Layer layer : layers) {
+            if (layer.dirty || layer.image == null || layer.image.contentsLost()) {
+                layer.dirty = true;
+                continue;
+            }
+            Graphics2D lg = layer.image.createGraphics();
+            try {
+                // Слой полупрозрачный: пиксели копируются как есть, без наложения
+                lg.setComposite(AlphaComposite.Src);
+                lg.copyArea(0, 0, width, height, dx, dy);
+            } finally {
+                lg.dispose();
+            }
+            // Полосы прошлого сдвига, еще не перерисованные, едут вместе с содержимым
+            if (layer.exposed == null) {
+                layer.exposed = new Area(strips);
+            } else {
+                layer.exposed.transform(AffineTransform.getTranslateInstance(dx, dy));
+                layer.exposed.add(strips);
+            }
+        }
+    }
+
+    /**
+     * Redraws dirty layers and blits all of them, bottom first
+     * @param g Target graphics in screen pixels
+     */
+    public void render(Graphics2D g) {
+        layersRedrawn = 0;
+        if (width <= 0 || height <= 0) return;
+
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        for (Layer layer : layers) {
+            drawLayer(g, gc, layer);
+        }
+    }
+
+    private void drawLayer(Graphics2D g, GraphicsConfiguration gc, Layer layer) {
+        for (int attempt = 0; attempt < MAX_VALIDATE_ATTEMPTS; attempt++) {
+            int status = layer.image == null ? VolatileImage.IMAGE_INCOMPATIBLE : layer.image.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (layer.image != null) layer.image.flush();
+                layer.image = gc.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT);
+                layer.dirty = true;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                layer.dirty = true;
+            }
+            if (layer.dirty) {
+                paintLayer(layer, null);
+            } else if (layer.exposed != null) {
+                paintLayer(layer, layer.exposed);
+            }
+            g.drawImage(layer.image, 0, 0, null);
+            if (!layer.image.contentsLost()) {
+                return;
+            }
+            layer.dirty = true;
+        }
+        System.err.println("[LayerCompositor] Failed to draw layer " + layer.name);
+    }
+
+    /**
+     * Repaints a layer
+     * @param area Part to repaint in screen pixels, null for the whole layer
+     */
+    private void paintLayer(Layer layer, Area area) {
+        if (profiler != null) profiler.mark(FrameProfiler.Phase.COMPOSITE);
+        Graphics2D lg = layer.image.createGraphics();
+        try {
+            if (area != null) lg.clip(area);
+            lg.setComposite(AlphaComposite.Clear);
+            lg.fillRect(0, 0, width, height);
+            lg.setComposite(AlphaComposite.SrcOver);
+            lg.scale(zoom, zoom);
+            lg.translate(offsetX, offsetY);
+            layer.painter.paint(lg);
+        } finally {
+            lg.dispose();
+        }
+        layer.dirty = false;
+        layer.exposed = null;
+        layersRedrawn++;
+        if (profiler != null) profiler.mark(layer.phase);
+    }
+
+    /**
+     * Releases all surfaces
+     */
+    public void flush() {
+        for (Layer layer : layers) {
+            if (layer.image != null) {
+                layer.image.flush();
+                layer.image = null;
+            }
+            layer.dirty = true;
+            layer.exposed = null;
+        }
+    }
+
+    private GraphicsConfiguration getGraphicsConfiguration() {
+        GraphicsConfiguration gc = owner.getGraphicsConfiguration();
+        if (gc == null) {
+            gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                    .getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        return gc;
+    }
+
+    public int getLayerCount() { return layers.size(); }
+
+    public int getLayersRedrawn() { return layersRedrawn; }
+}
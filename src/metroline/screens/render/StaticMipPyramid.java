@@ -0,0 +1,257 @@
+package metroline.screens.render;
+
+import metroline.core.world.tiles.WorldChunks;
+import metroline.core.world.tiles.WorldTile;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pyramid of pre-downsampled static world images for zoomed-out rendering.
+ * Level k draws a world tile with {@code worldTilePixels >> k} pixels. Levels are built in the
+ * background, one band of {@link WorldChunks#CHUNK_SIZE} rows per task, coarsest level first,
+ * and are used only once complete. Levels larger than {@link #MAX_LEVEL_PIXELS} are skipped,
+ * the renderer then draws the nearest coarser ready level: static tiles are flat colours, so a
+ * nearest-neighbour upscale of a coarser level shows the same picture.
+ * @author Tesmio
+ */
+public class StaticMipPyramid {
+    public static final int MAX_LEVEL = 5;
+    private static final long MAX_LEVEL_PIXELS = 4096L * 4096L;
+    private static final int BAND_ROWS = WorldChunks.CHUNK_SIZE;
+
+    /**
+     * Draws static terrain of a rectangle of world tiles
+     */
+    public interface RegionRasterizer {
+        /**
+         * @param g Graphics scaled so that a world tile is {@link WorldTile#TILE_SIZE} pixels
+         * @param x0 First column, inclusive
+         * @param y0 First row, inclusive
+         * @param x1 Last column, exclusive
+         * @param y1 Last row, exclusive
+         */
+        void rasterize(Graphics2D g, int x0, int y0, int x1, int y1);
+    }
+
+    private static final class Level {
+        final int tilePixels;
+        final int width;
+        final int height;
+        BufferedImage image;
+        volatile boolean ready;
+
+        Level(int tilePixels, int width, int height) {
+            this.tilePixels = tilePixels;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final Component owner;
+    private final RegionRasterizer rasterizer;
+    private final int worldTilePixels;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicInteger fullRedraw = new AtomicInteger();
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "StaticMipBuilder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private volatile Level[] levels = new Level[MAX_LEVEL + 1];
+    private int worldWidth;
+    private int worldHeight;
+
+    /**
+     * @param owner Component repainted when a level becomes ready
+     * @param rasterizer Static terrain painter, called from the builder thread
+     * @param worldTilePixels Size of a world tile in render units at zoom 1
+     */
+    public StaticMipPyramid(Component owner, RegionRasterizer rasterizer, int worldTilePixels) {
+        this.owner = owner;
+        this.rasterizer = rasterizer;
+        this.worldTilePixels = worldTilePixels;
+    }
+
+    /**
+     * Sets the world size. A size change rebuilds the pyramid.
+     * @param width World width in tiles
+     * @param height World height in tiles
+     */
+    public void setWorldSize(int width, int height) {
+        if (worldWidth == width && worldHeight == height) return;
+        worldWidth = width;
+        worldHeight = height;
+        rebuild();
+    }
+
+    /**
+     * Redraws every level in place in the background. Images are kept and stay on screen
+     * until their bands are redrawn; a newer call supersedes the bands of an older one still
+     * in the queue, so repeated calls do not pile up work.
+     */
+    public void invalidateAll() {
+        int gen = generation.get();
+        int redraw = fullRedraw.incrementAndGet();
+        Level[] current = levels;
+        for (int y0 = 0; y0 < worldHeight; y0 += BAND_ROWS) {
+            int bandStart = y0;
+            int bandEnd = Math.min(worldHeight, y0 + BAND_ROWS);
+            builder.execute(() -> {
+                if (redraw != fullRedraw.get()) return;
+                redrawRegion(gen, current, 0, bandStart, Integer.MAX_VALUE, bandEnd);
+            });
+        }
+    }
+
+    private void rebuild() {
+        int gen = generation.incrementAndGet();
+        Level[] fresh = new Level[MAX_LEVEL + 1];
+        Level[] old = levels;
+        levels = fresh;
+        for (Level level : old) {
+            if (level != null && level.image != null) level.image.flush();
+        }
+        if (worldWidth <= 0 || worldHeight <= 0) return;
+
+        // Грубые уровни дешевле и нужны при самом мелком зуме - строим их первыми
+        for (int k = MAX_LEVEL; k >= 1; k--) {
+            int tilePixels = worldTilePixels >> k;
+            if (tilePixels <= 0) continue;
+            if ((long) worldWidth * tilePixels * worldHeight * tilePixels > MAX_LEVEL_PIXELS) continue;
+            Level level = new Level(tilePixels, worldWidth, worldHeight);
+            fresh[k] = level;
+            for (int y0 = 0; y0 < worldHeight; y0 += BAND_ROWS) {
+                int bandStart = y0;
+                builder.execute(() -> buildBand(gen, level, bandStart));
+            }
+        }
+    }
+
+    private void buildBand(int gen, Level level, int y0) {
+        if (gen != generation.get()) return;
+        if (level.image == null) {
+            level.image = new BufferedImage(level.width * level.tilePixels, level.height * level.tilePixels,
+                    BufferedImage.TYPE_INT_RGB);
+        }
+        int y1 = Math.min(level.height, y0 + BAND_ROWS);
+        rasterizeInto(level, 0, y0, level.width, y1);
+        if (y1 == level.height) {
+            level.ready = true;
+            SwingUtilities.invokeLater(owner::repaint);
+        }
+    }
+
+    private void rasterizeInto(Level level, int x0, int y0, int x1, int y1) {
+        Graphics2D g = level.image.createGraphics();
+        try {
+            double scale = level.tilePixels / (double) WorldTile.TILE_SIZE;
+            g.scale(scale, scale);
+            rasterizer.rasterize(g, x0, y0, x1, y1);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Redraws a rectangle of world tiles in every level. Runs on the builder thread after
+     * the bands already queued, so levels under construction pick up the edit as well.
+     * @param x0 First column, inclusive
+     * @param y0 First row, inclusive
+     * @param x1 Last column, exclusive
+     * @param y1 Last row, exclusive
+     */
+    public void invalidateRegion(int x0, int y0, int x1, int y1) {
+        int gen = generation.get();
+        Level[] current = levels;
+        builder.execute(() -> redrawRegion(gen, current, x0, y0, x1, y1));
+    }
+
+    private void redrawRegion(int gen, Level[] current, int x0, int y0, int x1, int y1) {
+        if (gen != generation.get()) return;
+        boolean redrawn = false;
+        for (Level level : current) {
+            if (level == null || level.image == null) continue;
+            rasterizeInto(level, Math.max(0, x0), Math.max(0, y0),
+                    Math.min(level.width, x1), Math.min(level.height, y1));
+            redrawn |= level.ready;
+        }
+        if (redrawn) SwingUtilities.invokeLater(owner::repaint);
+    }
+
+    /**
+     * Draws the level matching the zoom
+     * @param g Target graphics in render units (a world tile is worldTilePixels)
+     * @param clip Visible area in render units, null for the whole world
+     * @param zoom Current zoom
+     * @return False if no ready level matches the zoom and the caller must draw full resolution
+     */
+    public boolean render(Graphics2D g, Rectangle clip, float zoom) {
+        Level level = select(zoom);
+        if (level == null) return false;
+
+        int scale = worldTilePixels / level.tilePixels;
+        int left = 0, top = 0;
+        int right = level.width * worldTilePixels, bottom = level.height * worldTilePixels;
+        if (clip != null) {
+            left = Math.max(left, clip.x);
+            top = Math.max(top, clip.y);
+            right = Math.min(right, clip.x + clip.width);
+            bottom = Math.min(bottom, clip.y + clip.height);
+            if (left >= right || top >= bottom) return true;
+        }
+
+        // Источник выравнивается по пикселям уровня, приемник - кратен масштабу
+        int sx0 = left / scale, sy0 = top / scale;
+        int sx1 = (right + scale - 1) / scale, sy1 = (bottom + scale - 1) / scale;
+        Object oldInterpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        // Более грубый уровень растягивается сильнее экрана, тайлы должны остаться резкими
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(level.image, sx0 * scale, sy0 * scale, sx1 * scale, sy1 * scale,
+                sx0, sy0, sx1, sy1, null);
+        if (oldInterpolation != null) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldInterpolation);
+        }
+        return true;
+    }
+
+    /**
+     * Picks the coarsest level that still has at least one pixel per screen pixel. If that level
+     * was skipped or is not ready yet, picks the nearest coarser ready level.
+     * @param zoom Current zoom
+     * @return Ready level or null
+     */
+    private Level select(float zoom) {
+        float screenTilePixels = worldTilePixels * zoom;
+        Level[] current = levels;
+        Level coarser = null;
+        for (int k = MAX_LEVEL; k >= 1; k--) {
+            Level level = current[k];
+            boolean ready = level != null && level.ready;
+            if ((worldTilePixels >> k) < screenTilePixels) {
+                // Обход идет от грубых к детальным, последний готовый - ближайший
+                if (ready) coarser = level;
+                continue;
+            }
+            return ready ? level : coarser;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the level used at the zoom, for the debug overlay
+     * @param zoom Current zoom
+     * @return Level index or 0 for full resolution
+     */
+    public int getLevelFor(float zoom) {
+        Level level = select(zoom);
+        if (level == null) return 0;
+        return Integer.numberOfTrailingZeros(worldTilePixels / level.tilePixels);
+    }
+}
@@ -0,0 +1,263 @@
+package metroline.screens.render;
+
+import java.awt.*;
+import java.awt.image.VolatileImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tiled cache of the static world layer.
+ * The static layer is split into {@link #TILE_PIXELS}-square VolatileImage tiles that are
+ * rasterized lazily, only when they intersect the visible area, and kept in an LRU.
+ * A tile whose surface was lost is rebuilt on its own, the rest of the cache stays intact.
+ * Edits invalidate a rectangle: only that part of the resident tiles is redrawn.
+ * Tiles are opaque and the cache never holds more than {@link #MAX_CACHE_BYTES} of them; a clip
+ * that needs more tiles than that is refused and the owner must draw it another way.
+ * <p>
+ * Coordinates are cache pixels: the owner decides how they map to world units.
+ * @author Tesmio
+ */
+public class StaticTileCache {
+    public static final int TILE_PIXELS = 512;
+    private static final int MIN_TILES = 48;
+    private static final long MAX_CACHE_BYTES = 128L << 20;
+    private static final int MAX_TILES = (int) (MAX_CACHE_BYTES / (4L * TILE_PIXELS * TILE_PIXELS));
+    private static final int MAX_VALIDATE_ATTEMPTS = 3;
+
+    /**
+     * Draws a part of the static layer into a tile
+     */
+    public interface TileRasterizer {
+        /**
+         * @param g Graphics of the tile, already translated so that (pixelX, pixelY) is the tile origin
+         * @param pixelX Left edge of the area in cache pixels
+         * @param pixelY Top edge of the area in cache pixels
+         * @param width Width of the area in cache pixels
+         * @param height Height of the area in cache pixels
+         */
+        void rasterize(Graphics2D g, int pixelX, int pixelY, int width, int height);
+    }
+
+    private static final class Tile {
+        VolatileImage image;
+        boolean valid;
+        Rectangle dirty; // часть валидного тайла, которую нужно перерисовать
+    }
+
+    private final Component owner;
+    private final TileRasterizer rasterizer;
+    private final LinkedHashMap<Long, Tile> tiles;
+    private int maxTiles = MIN_TILES;
+    private int widthPixels;
+    private int heightPixels;
+
+    // Статистика последнего кадра для отладки
+    private int tilesDrawn;
+    private int tilesRasterized;
+
+    public StaticTileCache(Component owner, TileRasterizer rasterizer) {
+        this.owner = owner;
+        this.rasterizer = rasterizer;
+        this.tiles = new LinkedHashMap<Long, Tile>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                if (size() <= maxTiles) return false;
+                flushTile(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Sets the size of the cached layer. A size change drops all tiles.
+     * @param widthPixels Layer width in cache pixels
+     * @param heightPixels Layer height in cache pixels
+     */
+    public void setSize(int widthPixels, int heightPixels) {
+        if (this.widthPixels == widthPixels && this.heightPixels == heightPixels) return;
+        flush();
+        this.widthPixels = widthPixels;
+        this.heightPixels = heightPixels;
+    }
+
+    /**
+     * Draws the tiles intersecting the clip, rasterizing missing and lost ones
+     * @param g Target graphics, in cache pixel space
+     * @param clip Visible area in cache pixels, null for the whole layer
+     * @return False if the clip needs more tiles than the cache may hold, nothing is drawn then
+     */
+    public boolean render(Graphics2D g, Rectangle clip) {
+        tilesDrawn = 0;
+        tilesRasterized = 0;
+        if (widthPixels <= 0 || heightPixels <= 0) return true;
+
+        int left = 0, top = 0, right = widthPixels, bottom = heightPixels;
+        if (clip != null) {
+            left = Math.max(left, clip.x);
+            top = Math.max(top, clip.y);
+            right = Math.min(right, clip.x + clip.width);
+            bottom = Math.min(bottom, clip.y + clip.height);
+            if (left >= right || top >= bottom) return true;
+        }
+
+        int col0 = left / TILE_PIXELS;
+        int row0 = top / TILE_PIXELS;
+        int col1 = (right - 1) / TILE_PIXELS;
+        int row1 = (bottom - 1) / TILE_PIXELS;
+
+        // Видимые тайлы не должны вытеснять друг друга, но и кэш не растет без предела
+        int visible = (col1 - col0 + 1) * (row1 - row0 + 1);
+        if (visible > MAX_TILES) return false;
+        maxTiles = Math.min(MAX_TILES, Math.max(MIN_TILES, visible * 2));
+
+        for (int row = row0; row <= row1; row++) {
+            for (int col = col0; col <= col1; col++) {
+                drawTile(g, col, row);
+            }
+        }
+        return true;
+    }
+
+    private void drawTile(Graphics2D g, int col, int row) {
+        long key = key(col, row);
+        Tile tile = tiles.get(key);
+        if (tile == null) {
+            tile = new Tile();
+            tiles.put(key, tile);
+        }
+
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        for (int attempt = 0; attempt < MAX_VALIDATE_ATTEMPTS; attempt++) {
+            int status = tile.image == null ? VolatileImage.IMAGE_INCOMPATIBLE : tile.image.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                flushTile(tile);
+                tile.image = gc.createCompatibleVolatileImage(TILE_PIXELS, TILE_PIXELS, Transparency.OPAQUE);
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                tile.valid = false;
+            }
+            if (!tile.valid) {
+                rasterizeTile(tile, col, row);
+            } else if (tile.dirty != null) {
+                rasterizeDirty(tile);
+            }
+            // Крайние тайлы выходят за слой, их недорисованная часть не показывается
+            int x = col * TILE_PIXELS;
+            int y = row * TILE_PIXELS;
+            int width = Math.min(TILE_PIXELS, widthPixels - x);
+            int height = Math.min(TILE_PIXELS, heightPixels - y);
+            g.drawImage(tile.image, x, y, x + width, y + height, 0, 0, width, height, null);
+            if (!tile.image.contentsLost()) {
+                tilesDrawn++;
+                return;
+            }
+            tile.valid = false;
+        }
+        System.err.println("[StaticTileCache] Failed to draw tile " + col + "," + row);
+    }
+
+    private void rasterizeTile(Tile tile, int col, int row) {
+        int pixelX = col * TILE_PIXELS;
+        int pixelY = row * TILE_PIXELS;
+        rasterizeArea(tile, pixelX, pixelY, new Rectangle(pixelX, pixelY,
+                Math.min(TILE_PIXELS, widthPixels - pixelX),
+                Math.min(TILE_PIXELS, heightPixels - pixelY)));
+        tile.valid = true;
+    }
+
+    private void rasterizeDirty(Tile tile) {
+        Rectangle dirty = tile.dirty;
+        rasterizeArea(tile, dirty.x - Math.floorMod(dirty.x, TILE_PIXELS),
+                dirty.y - Math.floorMod(dirty.y, TILE_PIXELS), dirty);
+    }
+
+    private void rasterizeArea(Tile tile, int tileX, int tileY, Rectangle area) {
+        Graphics2D g = tile.image.createGraphics();
+        try {
+            g.translate(-tileX, -tileY);
+            // Тайл непрозрачный, растеризатор закрывает всю область - очистка не нужна
+            g.clip(area);
+            rasterizer.rasterize(g, area.x, area.y, area.width, area.height);
+        } finally {
+            g.dispose();
+        }
+        tile.dirty = null;
+        tilesRasterized++;
+    }
+
+    /**
+     * Marks a rectangle as stale. Resident tiles redraw only that part the next time they are drawn,
+     * tiles that are not resident are unaffected.
+     * @param area Rectangle in cache pixels
+     */
+    public void invalidateRegion(Rectangle area) {
+        Rectangle bounded = area.intersection(new Rectangle(0, 0, widthPixels, heightPixels));
+        if (bounded.isEmpty()) return;
+
+        int col0 = bounded.x / TILE_PIXELS;
+        int row0 = bounded.y / TILE_PIXELS;
+        int col1 = (bounded.x + bounded.width - 1) / TILE_PIXELS;
+        int row1 = (bounded.y + bounded.height - 1) / TILE_PIXELS;
+        for (int row = row0; row <= row1; row++) {
+            for (int col = col0; col <= col1; col++) {
+                Tile tile = tiles.get(key(col, row));
+                if (tile == null || !tile.valid) continue;
+                Rectangle part = bounded.intersection(
+                        new Rectangle(col * TILE_PIXELS, row * TILE_PIXELS, TILE_PIXELS, TILE_PIXELS));
+                if (tile.dirty == null) {
+                    tile.dirty = part;
+                } else {
+                    tile.dirty.add(part);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks every tile as stale. Surfaces are kept and redrawn lazily when they become visible.
+     */
+    public void invalidateAll() {
+        for (Tile tile : tiles.values()) {
+            tile.valid = false;
+        }
+    }
+
+    /**
+     * Releases all surfaces
+     */
+    public void flush() {
+        Iterator<Tile> it = tiles.values().iterator();
+        while (it.hasNext()) {
+            flushTile(it.next());
+            it.remove();
+        }
+    }
+
+    private static void flushTile(Tile tile) {
+        if (tile.image != null) {
+            tile.image.flush();
+            tile.image = null;
+        }
+        tile.valid = false;
+        tile.dirty = null;
+    }
+
+    private GraphicsConfiguration getGraphicsConfiguration() {
+        GraphicsConfiguration gc = owner.getGraphicsConfiguration();
+        if (gc == null) {
+            gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                    .getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        return gc;
+    }
+
+    private static long key(int col, int row) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    public int getTileCount() { return tiles.size(); }
+
+    public int getTilesDrawn() { return tilesDrawn; }
+
+    public int getTilesRasterized() { return tilesRasterized; }
+}
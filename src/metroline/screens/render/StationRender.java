@@ -2,21 +2,46 @@ package metroline.screens.render;
 
 import metroline.objects.enums.Direction;
 import metroline.objects.enums.StationType;
+import metroline.core.world.World;
 import metroline.objects.gameobjects.Station;
+import metroline.util.collections.LongLruCache;
 
 import java.awt.*;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Path2D;
-import java.awt.geom.Point2D;
 import java.awt.geom.RoundRectangle2D;
 import java.util.EnumMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Draws stations. Shapes are built relative to the station cell origin and cached per
+ * (shape variant, station type, zoom bucket) in a bounded LRU, so one cache entry serves
+ * every station of that type and drawing only translates the graphics. Colours, their darker
+ * variants and transfer paints are cached as well, so drawing a frame allocates nothing.
+ */
 public class StationRender {
 
-    private static final Map<String, CachedStation> vectorCache = new ConcurrentHashMap<>();
     private static final int BASE_SIZE = 24;
+    private static final int CACHE_CAPACITY = 256;
+    // Шаг квантования зума, соответствует прежнему ключу "%.2f"
+    private static final int ZOOM_BUCKETS = 100;
+    private static final int VARIANT_ROUND = 0;
+    private static final int VARIANT_SQUARE = 1;
+
+    private static final int PALETTE_CAPACITY = 512;
+    private static final int PALETTE_BASE = 0;
+    private static final int PALETTE_DARKER = 1;
+    private static final int PALETTE_DARKEST = 2;
+    private static final Color BURNED_COLOR = new Color(175, 67, 22, 216);
+    private static final Color DROWNED_COLOR = new Color(47, 73, 138, 216);
+    // values() копирует массив при каждом вызове
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final float[] TRANSFER_FRACTIONS = {0f, 0.35f, 0.65f, 1f};
+
+    private static final LongLruCache<CachedStation> vectorCache = new LongLruCache<>(CACHE_CAPACITY);
+    private static final LongLruCache<CachedTransfer> transferCache = new LongLruCache<>(CACHE_CAPACITY);
+    // Цвет -> {цвет, darker(), darker().darker()}, ключ - упакованный ARGB
+    private static final LongLruCache<Color[]> paletteCache = new LongLruCache<>(PALETTE_CAPACITY);
 
     private static class CachedStation {
         public final Shape stationShape;
@@ -26,16 +51,118 @@ public class StationRender {
         public final Shape worldColorShape;
         public final Map<StationType, Shape> specialShapes;
 
+        // Обводки зависят только от зума - создаются вместе с формами
+        public final BasicStroke outlineStroke;
+        public final BasicStroke depoStroke;
+        public final BasicStroke crossStroke;
+        public final BasicStroke ruinStroke;
+        public final BasicStroke debrisStroke;
+        public final BasicStroke thinStroke;
+        public final BasicStroke buildingStroke;
+        public final BasicStroke transferStroke;
+
         public CachedStation(Shape stationShape, Shape waterShape, Shape waterOutlineShape,
                 Shape selectionShape, Shape worldColorShape,
-                Map<StationType, Shape> specialShapes) {
+                Map<StationType, Shape> specialShapes, float zoom) {
             this.stationShape = stationShape;
             this.waterShape = waterShape;
             this.waterOutlineShape = waterOutlineShape;
             this.selectionShape = selectionShape;
             this.worldColorShape = worldColorShape;
             this.specialShapes = specialShapes;
+            this.outlineStroke = new BasicStroke(2 * zoom);
+            this.depoStroke = new BasicStroke(5 * zoom);
+            this.crossStroke = new BasicStroke(3 * zoom);
+            this.ruinStroke = new BasicStroke(2.8f * zoom);
+            this.debrisStroke = new BasicStroke(1.5f * zoom);
+            this.thinStroke = new BasicStroke(1 * zoom);
+            this.buildingStroke = new BasicStroke(2 * zoom, BasicStroke.CAP_BUTT,
+                    BasicStroke.JOIN_MITER, 10, new float[]{4 * zoom, 4 * zoom}, 0);
+            this.transferStroke = new BasicStroke(14 * zoom, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+        }
+    }
+
+    /**
+     * Transfer connection to one neighbour, built from the station cell centre
+     */
+    private static class CachedTransfer {
+        public final Path2D path;
+        public final LinearGradientPaint paint;
+
+        public CachedTransfer(Path2D path, LinearGradientPaint paint) {
+            this.path = path;
+            this.paint = paint;
+        }
+    }
+
+    private static int zoomBucket(float zoom) {
+        return Math.max(1, Math.round(zoom * ZOOM_BUCKETS));
+    }
+
+    private static long cacheKey(int variant, StationType type, int zoomBucket) {
+        return ((long) zoomBucket << 16) | ((long) type.ordinal() << 1) | variant;
+    }
+
+    // Рендер идет из EDT и из экспорта изображения, поэтому доступ к LRU синхронизирован
+    private static synchronized CachedStation getCached(int variant, StationType type, float zoom) {
+        int bucket = zoomBucket(zoom);
+        long key = cacheKey(variant, type, bucket);
+        CachedStation cached = vectorCache.get(key);
+        if (cached == null) {
+            float bucketZoom = bucket / (float) ZOOM_BUCKETS;
+            cached = variant == VARIANT_ROUND
+                    ? createCachedStation(type, bucketZoom)
+                    : createCachedSquareStation(type, bucketZoom);
+            vectorCache.put(key, cached);
         }
+        return cached;
+    }
+
+    private static synchronized CachedTransfer getCachedTransfer(Color from, Color to, Direction dir, float zoom) {
+        int bucket = Math.min(zoomBucket(zoom), 0x1FFF);
+        long key = ((long) (from.getRGB() & 0xFFFFFF) << 40) | ((long) (to.getRGB() & 0xFFFFFF) << 16)
+                | ((long) dir.ordinal() << 13) | bucket;
+        CachedTransfer cached = transferCache.get(key);
+        if (cached == null) {
+            float bucketZoom = bucket / (float) ZOOM_BUCKETS;
+            float dx = dir.getDx() * 32 * bucketZoom;
+            float dy = dir.getDy() * 32 * bucketZoom;
+            // Конец градиента в дробных координатах - при мелком зуме он не совпадает с началом
+            LinearGradientPaint paint = new LinearGradientPaint(0, 0, dx, dy,
+                    TRANSFER_FRACTIONS, new Color[]{from, from, to, to});
+            Path2D path = createTransferPath(0, 0, (int) dx, (int) dy, dir, bucketZoom);
+            cached = new CachedTransfer(path, paint);
+            transferCache.put(key, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Gets a colour with its darker variants
+     * @param rgb Packed ARGB colour
+     * @return {colour, darker(), darker().darker()}
+     */
+    private static synchronized Color[] palette(int rgb) {
+        Color[] entry = paletteCache.get(rgb);
+        if (entry == null) {
+            Color color = new Color(rgb, true);
+            Color darker = color.darker();
+            entry = new Color[]{color, darker, darker.darker()};
+            paletteCache.put(rgb, entry);
+        }
+        return entry;
+    }
+
+    private static Color worldColor(Station station, int variant) {
+        World world = station.getWorld();
+        int x = station.getX();
+        int y = station.getY();
+        if (x < 0 || x >= world.getWidth() || y < 0 || y >= world.getHeight()) return null;
+        return palette(TerrainRasterizer.colorAt(world.getTerrain(), x, y))[variant];
+    }
+
+    private static Color stationColor(Station station, int variant) {
+        return palette(station.getColor().getRGB())[variant];
     }
 
     /**************************
@@ -43,91 +170,59 @@ public class StationRender {
      **************************/
 
     public static void drawWorldColorRing(Station station, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
-        String cacheKey = "world_" + station.getX() + "_" + station.getY() + "_" + String.format("%.2f", zoom);
-        CachedStation cached = vectorCache.get(cacheKey);
-
-        if (cached == null) {
-            cached = createCachedStation(station, offsetX, offsetY, zoom);
-            vectorCache.put(cacheKey, cached);
-        }
+        CachedStation cached = getCached(VARIANT_ROUND, station.getType(), zoom);
+        float originX = StationTransform.cellOriginX(station, offsetX, zoom);
+        float originY = StationTransform.cellOriginY(station, offsetY, zoom);
+        g2d.translate(originX, originY);
 
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setColor(station.getWorld().getWorldColorAt(station.getX(), station.getY()));
+        g2d.setColor(worldColor(station, PALETTE_BASE));
         g2d.fill(cached.worldColorShape);
+        g2d.translate(-originX, -originY);
     }
 
     public static void drawRoundSelection(Station station, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
-        String cacheKey = "selection_" + station.getX() + "_" + station.getY() + "_" + String.format("%.2f", zoom);
-        CachedStation cached = vectorCache.get(cacheKey);
-
-        if (cached == null) {
-            cached = createCachedStation(station, offsetX, offsetY, zoom);
-            vectorCache.put(cacheKey, cached);
-        }
+        CachedStation cached = getCached(VARIANT_ROUND, station.getType(), zoom);
+        float originX = StationTransform.cellOriginX(station, offsetX, zoom);
+        float originY = StationTransform.cellOriginY(station, offsetY, zoom);
+        g2d.translate(originX, originY);
 
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setColor(Color.YELLOW);
-        g2d.setStroke(new BasicStroke(2 * zoom));
+        g2d.setStroke(cached.outlineStroke);
         g2d.draw(cached.selectionShape);
+        g2d.translate(-originX, -originY);
     }
 
     public static void drawRoundTransfer(Station station, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
-        int cellCenterX = (int) ((station.getX() * 32 + offsetX + 16) * zoom);
-        int cellCenterY = (int) ((station.getY() * 32 + offsetY + 16) * zoom);
-
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        Map<Direction, Station> adjacentStations = new EnumMap<>(Direction.class);
-        for (Direction dir : Direction.values()) {
-            int nx = station.getX() + dir.getDx();
-            int ny = station.getY() + dir.getDy();
-            Station neighbor = station.getWorld().getStationAt(nx, ny);
-            if (neighbor != null && neighbor != station) {
-                adjacentStations.put(dir, neighbor);
-            }
-        }
+        int cellCenterX = StationTransform.cellCenterX(station, offsetX, zoom);
+        int cellCenterY = StationTransform.cellCenterY(station, offsetY, zoom);
 
-        if (station.getType() == StationType.TRANSFER && !adjacentStations.isEmpty()) {
-            float connectionWidth = 14.0f * zoom;
+        // Переходы рисуются только у пересадочных станций - остальные выходят без аллокаций
+        if (station.getType() != StationType.TRANSFER) return;
 
-            for (Map.Entry<Direction, Station> entry : adjacentStations.entrySet()) {
-                Direction dir = entry.getKey();
-                Station neighbor = entry.getValue();
-
-                if (!neighbor.getColor().equals(station.getColor())) {
-                    int nx = (int) ((neighbor.getX() * 32 + offsetX + 16) * zoom);
-                    int ny = (int) ((neighbor.getY() * 32 + offsetY + 16) * zoom);
-
-                    // Градиентное соединение
-                    Color[] colors = {station.getColor(), station.getColor(), neighbor.getColor(), neighbor.getColor()};
-                    float[] fractions = {0f, 0.35f, 0.65f, 1f};
-
-                    LinearGradientPaint gradient = new LinearGradientPaint(
-                            new Point2D.Float(cellCenterX, cellCenterY),
-                            new Point2D.Float(nx, ny),
-                            fractions, colors
-                    );
-
-                    g2d.setPaint(gradient);
-                    g2d.setStroke(new BasicStroke(connectionWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-                    // Создаем и рисуем путь соединения
-                    Path2D path = createTransferPath(cellCenterX, cellCenterY, nx, ny, dir, zoom);
-                    g2d.draw(path);
-                }
-            }
+        Color stationColor = station.getColor();
+        for (Direction dir : DIRECTIONS) {
+            Station neighbor = station.getWorld().getStationAt(station.getX() + dir.getDx(), station.getY() + dir.getDy());
+            if (neighbor == null || neighbor == station || neighbor.getColor().equals(stationColor)) continue;
+
+            // Градиентное соединение: путь и заливка строятся от центра клетки и берутся из кэша
+            CachedTransfer transfer = getCachedTransfer(stationColor, neighbor.getColor(), dir, zoom);
+            g2d.translate(cellCenterX, cellCenterY);
+            g2d.setPaint(transfer.paint);
+            g2d.setStroke(getCached(VARIANT_ROUND, station.getType(), zoom).transferStroke);
+            g2d.draw(transfer.path);
+            g2d.translate(-cellCenterX, -cellCenterY);
         }
     }
 
     public static void drawRoundStation(Station station, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
-        String cacheKey = "station_" + station.getType() + "_" + station.getX() + "_" +
-                station.getY() + "_" + String.format("%.2f", zoom);
-        CachedStation cached = vectorCache.get(cacheKey);
-
-        if (cached == null) {
-            cached = createCachedStation(station, offsetX, offsetY, zoom);
-            vectorCache.put(cacheKey, cached);
-        }
+        CachedStation cached = getCached(VARIANT_ROUND, station.getType(), zoom);
+        float originX = StationTransform.cellOriginX(station, offsetX, zoom);
+        float originY = StationTransform.cellOriginY(station, offsetY, zoom);
+        g2d.translate(originX, originY);
 
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
@@ -135,7 +230,7 @@ public class StationRender {
         switch (station.getType()) {
             case DEPO:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(5 * zoom));
+                g2d.setStroke(cached.depoStroke);
                 g2d.draw(cached.stationShape);
                 break;
 
@@ -148,17 +243,15 @@ public class StationRender {
             case CLOSED:
             case PLANNED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
                 break;
 
             case BUILDING:
                 g2d.setColor(station.getColor());
-                float[] dashPattern = {4 * zoom, 4 * zoom};
-                g2d.setStroke(new BasicStroke(2 * zoom, BasicStroke.CAP_BUTT,
-                        BasicStroke.JOIN_MITER, 10, dashPattern, 0));
+                g2d.setStroke(cached.buildingStroke);
                 g2d.draw(cached.stationShape);
-                g2d.setStroke(new BasicStroke(1 * zoom));
+                g2d.setStroke(cached.thinStroke);
                 break;
 
             default:
@@ -176,6 +269,7 @@ public class StationRender {
         if (onWaterTile || onRiver) {
             drawWaterEffect(station, g2d, cached, zoom);
         }
+        g2d.translate(-originX, -originY);
     }
 
     /**************************
@@ -183,43 +277,35 @@ public class StationRender {
      **************************/
 
     public static void drawWorldColorSquare(Station station, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
-        String cacheKey = "square_world_" + station.getX() + "_" + station.getY() + "_" + String.format("%.2f", zoom);
-        CachedStation cached = vectorCache.get(cacheKey);
-
-        if (cached == null) {
-            cached = createCachedSquareStation(station, offsetX, offsetY, zoom);
-            vectorCache.put(cacheKey, cached);
-        }
+        CachedStation cached = getCached(VARIANT_SQUARE, station.getType(), zoom);
+        float originX = StationTransform.cellOriginX(station, offsetX, zoom);
+        float originY = StationTransform.cellOriginY(station, offsetY, zoom);
+        g2d.translate(originX, originY);
 
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setColor(station.getWorld().getWorldColorAt(station.getX(), station.getY()));
+        g2d.setColor(worldColor(station, PALETTE_BASE));
         g2d.fill(cached.worldColorShape);
+        g2d.translate(-originX, -originY);
     }
 
     public static void drawSquareSelection(Station station, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
-        String cacheKey = "square_selection_" + station.getX() + "_" + station.getY() + "_" + String.format("%.2f", zoom);
-        CachedStation cached = vectorCache.get(cacheKey);
-
-        if (cached == null) {
-            cached = createCachedSquareStation(station, offsetX, offsetY, zoom);
-            vectorCache.put(cacheKey, cached);
-        }
+        CachedStation cached = getCached(VARIANT_SQUARE, station.getType(), zoom);
+        float originX = StationTransform.cellOriginX(station, offsetX, zoom);
+        float originY = StationTransform.cellOriginY(station, offsetY, zoom);
+        g2d.translate(originX, originY);
 
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setColor(Color.YELLOW);
-        g2d.setStroke(new BasicStroke(2 * zoom));
+        g2d.setStroke(cached.outlineStroke);
         g2d.draw(cached.selectionShape);
+        g2d.translate(-originX, -originY);
     }
 
     public static void drawSquareStation(Station station, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
-        String cacheKey = "square_" + station.getType() + "_" + station.getX() + "_" +
-                station.getY() + "_" + String.format("%.2f", zoom);
-        CachedStation cached = vectorCache.get(cacheKey);
-
-        if (cached == null) {
-            cached = createCachedSquareStation(station, offsetX, offsetY, zoom);
-            vectorCache.put(cacheKey, cached);
-        }
+        CachedStation cached = getCached(VARIANT_SQUARE, station.getType(), zoom);
+        float originX = StationTransform.cellOriginX(station, offsetX, zoom);
+        float originY = StationTransform.cellOriginY(station, offsetY, zoom);
+        g2d.translate(originX, originY);
 
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
@@ -227,7 +313,7 @@ public class StationRender {
         switch (station.getType()) {
             case DEPO:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(5 * zoom));
+                g2d.setStroke(cached.depoStroke);
                 g2d.draw(cached.stationShape);
                 break;
 
@@ -240,18 +326,16 @@ public class StationRender {
             case CLOSED:
             case PLANNED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
                 break;
 
 
             case BUILDING:
                 g2d.setColor(station.getColor());
-                float[] dashPattern = {4 * zoom, 4 * zoom};
-                g2d.setStroke(new BasicStroke(2 * zoom, BasicStroke.CAP_BUTT,
-                        BasicStroke.JOIN_MITER, 10, dashPattern, 0));
+                g2d.setStroke(cached.buildingStroke);
                 g2d.draw(cached.stationShape);
-                g2d.setStroke(new BasicStroke(1 * zoom));
+                g2d.setStroke(cached.thinStroke);
                 break;
 
             default:
@@ -268,14 +352,15 @@ public class StationRender {
         if (station.isOnWater()) {
             drawSquareWaterEffect(station, g2d, cached, zoom);
         }
+        g2d.translate(-originX, -originY);
     }
-    private static void createSpecialSquareShapes(Station station, Map<StationType, Shape> specialShapes,
+    private static void createSpecialSquareShapes(StationType type, Map<StationType, Shape> specialShapes,
             int drawX, int drawY, int drawSize, int arcSize, float zoom) {
 
         int centerX = drawX + drawSize / 2;
         int centerY = drawY + drawSize / 2;
 
-        switch (station.getType()) {
+        switch (type) {
             case RUINED:
                 // Зигзагообразные линии для квадратной разрушенной станции
                 Path2D zigzagPath = new Path2D.Float();
@@ -327,12 +412,12 @@ public class StationRender {
                 crossPath.lineTo(drawX + drawSize - crossPadding, drawY + drawSize - crossPadding);
 
                 // Вторая диагональ (кроме CLOSED)
-                if (station.getType() != StationType.CLOSED) {
+                if (type != StationType.CLOSED) {
                     crossPath.moveTo(drawX + drawSize - crossPadding, drawY + crossPadding);
                     crossPath.lineTo(drawX + crossPadding, drawY + drawSize - crossPadding);
                 }
 
-                specialShapes.put(station.getType(), crossPath);
+                specialShapes.put(type, crossPath);
                 break;
         }
     }
@@ -343,69 +428,69 @@ public class StationRender {
         switch (station.getType()) {
             case RUINED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
 
-                g2d.setColor(station.getColor().darker().darker());
-                g2d.setStroke(new BasicStroke(2.8f * zoom));
+                g2d.setColor(stationColor(station, PALETTE_DARKEST));
+                g2d.setStroke(cached.ruinStroke);
                 g2d.draw(specialShape);
                 break;
 
             case DESTROYED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
 
-                g2d.setColor(station.getColor().darker().darker());
-                g2d.setStroke(new BasicStroke(3 * zoom));
+                g2d.setColor(stationColor(station, PALETTE_DARKEST));
+                g2d.setStroke(cached.crossStroke);
                 g2d.draw(specialShape);
                 break;
 
             case ABANDONED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
 
-                g2d.setStroke(new BasicStroke(3 * zoom));
-                g2d.setColor(station.getColor().darker().darker());
+                g2d.setStroke(cached.crossStroke);
+                g2d.setColor(stationColor(station, PALETTE_DARKEST));
                 g2d.draw(specialShape);
                 break;
 
             case BURNED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
 
-                g2d.setStroke(new BasicStroke(3 * zoom));
-                g2d.setColor(new Color(175, 67, 22, 216));
+                g2d.setStroke(cached.crossStroke);
+                g2d.setColor(BURNED_COLOR);
                 g2d.draw(specialShape);
                 break;
 
             case DROWNED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
 
-                g2d.setStroke(new BasicStroke(3 * zoom));
-                g2d.setColor(new Color(47, 73, 138, 216));
+                g2d.setStroke(cached.crossStroke);
+                g2d.setColor(DROWNED_COLOR);
                 g2d.draw(specialShape);
                 break;
 
             case CLOSED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
 
-                g2d.setColor(station.getColor().darker().darker());
+                g2d.setColor(stationColor(station, PALETTE_DARKEST));
                 g2d.draw(specialShape);
                 break;
             case REPAIR:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
 
                 // Fill triangle icon
-                g2d.setColor(station.getColor().darker());
+                g2d.setColor(stationColor(station, PALETTE_DARKER));
                 g2d.fill(specialShape);
                 break;
         }
@@ -414,11 +499,11 @@ public class StationRender {
     private static void drawSquareWaterEffect(Station station, Graphics2D g2d, CachedStation cached, float zoom) {
         if (station.getType() == StationType.PLANNED || station.getType() == StationType.BUILDING ||
                 station.getType() == StationType.CLOSED || station.getType() == StationType.DESTROYED) {
-            g2d.setColor(station.getWorld().getWorldColorAt(station.getX(), station.getY()).darker().darker());
-            g2d.setStroke(new BasicStroke(2 * zoom));
+            g2d.setColor(worldColor(station, PALETTE_DARKEST));
+            g2d.setStroke(cached.outlineStroke);
             g2d.draw(cached.waterOutlineShape);
         } else {
-            g2d.setColor(station.getWorld().getWorldColorAt(station.getX(), station.getY()));
+            g2d.setColor(worldColor(station, PALETTE_BASE));
             g2d.fill(cached.waterShape);
         }
     }
@@ -426,10 +511,11 @@ public class StationRender {
      * PRIVATE HELPER METHODS
      **************************/
 
-    private static CachedStation createCachedStation(Station station, int offsetX, int offsetY, float zoom) {
+    private static CachedStation createCachedStation(StationType type, float zoom) {
         int drawSize = (int) (BASE_SIZE * zoom);
-        int cellCenterX = (int) ((station.getX() * 32 + offsetX + 16) * zoom);
-        int cellCenterY = (int) ((station.getY() * 32 + offsetY + 16) * zoom);
+        // Формы строятся от начала клетки, позиция станции задается переносом при отрисовке
+        int cellCenterX = (int) (16 * zoom);
+        int cellCenterY = (int) (16 * zoom);
         int drawX = cellCenterX - drawSize / 2;
         int drawY = cellCenterY - drawSize / 2;
 
@@ -449,16 +535,16 @@ public class StationRender {
 
         // Специальные формы для разных типов станций
         Map<StationType, Shape> specialShapes = new EnumMap<>(StationType.class);
-        createSpecialShapes(station, specialShapes, drawX, drawY, drawSize, zoom);
+        createSpecialShapes(type, specialShapes, drawX, drawY, drawSize, zoom);
 
         return new CachedStation(stationShape, waterShape, waterOutlineShape,
-                selectionShape, worldColorShape, specialShapes);
+                selectionShape, worldColorShape, specialShapes, zoom);
     }
 
-    private static CachedStation createCachedSquareStation(Station station, int offsetX, int offsetY, float zoom) {
+    private static CachedStation createCachedSquareStation(StationType type, float zoom) {
         int drawSize = (int) (20 * zoom);
-        int drawX = (int) ((station.getX() * 32 + offsetX + 6) * zoom);
-        int drawY = (int) ((station.getY() * 32 + offsetY + 6) * zoom);
+        int drawX = (int) (6 * zoom);
+        int drawY = (int) (6 * zoom);
         int arcSize = (int) (drawSize * 0.35);
 
         // Основные формы
@@ -474,18 +560,18 @@ public class StationRender {
 
         // Специальные формы
         Map<StationType, Shape> specialShapes = new EnumMap<>(StationType.class);
-        createSpecialSquareShapes(station, specialShapes, drawX, drawY, drawSize, arcSize, zoom);
+        createSpecialSquareShapes(type, specialShapes, drawX, drawY, drawSize, arcSize, zoom);
 
         return new CachedStation(stationShape, waterShape, waterOutlineShape,
-                selectionShape, worldColorShape, specialShapes);
+                selectionShape, worldColorShape, specialShapes, zoom);
     }
 
-    private static void createSpecialShapes(Station station, Map<StationType, Shape> specialShapes,
+    private static void createSpecialShapes(StationType type, Map<StationType, Shape> specialShapes,
             int drawX, int drawY, int drawSize, float zoom) {
         int centerX = drawX + drawSize / 2;
         int centerY = drawY + drawSize / 2;
 
-        switch (station.getType()) {
+        switch (type) {
             case RUINED:
                 // Зигзагообразные линии для разрушенной станции
                 Path2D zigzagPath = new Path2D.Float();
@@ -548,12 +634,12 @@ public class StationRender {
                 crossPath.moveTo(drawX + crossPadding, drawY + crossPadding);
                 crossPath.lineTo(drawX + drawSize - crossPadding, drawY + drawSize - crossPadding);
 
-                if (station.getType() != StationType.CLOSED) {
+                if (type != StationType.CLOSED) {
                     crossPath.moveTo(drawX + drawSize - crossPadding, drawY + crossPadding);
                     crossPath.lineTo(drawX + crossPadding, drawY + drawSize - crossPadding);
                 }
 
-                specialShapes.put(station.getType(), crossPath);
+                specialShapes.put(type, crossPath);
                 break;
         }
     }
@@ -565,64 +651,64 @@ public class StationRender {
 
         switch (station.getType()) {
             case RUINED:
-                g2d.setColor(station.getColor().darker().darker());
-                g2d.setStroke(new BasicStroke(2.8f * zoom));
+                g2d.setColor(stationColor(station, PALETTE_DARKEST));
+                g2d.setStroke(cached.ruinStroke);
                 g2d.draw(specialShape);
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
                 break;
 
             case DESTROYED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
                 g2d.setColor(Color.BLACK);
-                g2d.setStroke(new BasicStroke(1.5f * zoom));
+                g2d.setStroke(cached.debrisStroke);
                 g2d.draw(specialShape);
                 break;
 
             case ABANDONED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
-                g2d.setStroke(new BasicStroke(3 * zoom));
-                g2d.setColor(station.getColor().darker().darker());
+                g2d.setStroke(cached.crossStroke);
+                g2d.setColor(stationColor(station, PALETTE_DARKEST));
                 g2d.draw(specialShape);
                 break;
 
             case BURNED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
-                g2d.setStroke(new BasicStroke(3 * zoom));
-                g2d.setColor(new Color(175, 67, 22, 216));
+                g2d.setStroke(cached.crossStroke);
+                g2d.setColor(BURNED_COLOR);
                 g2d.draw(specialShape);
                 break;
 
             case DROWNED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
-                g2d.setStroke(new BasicStroke(3 * zoom));
-                g2d.setColor(new Color(47, 73, 138, 216));
+                g2d.setStroke(cached.crossStroke);
+                g2d.setColor(DROWNED_COLOR);
                 g2d.draw(specialShape);
                 break;
 
             case CLOSED:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
-                g2d.setColor(station.getColor().darker().darker());
+                g2d.setColor(stationColor(station, PALETTE_DARKEST));
                 g2d.draw(specialShape);
                 break;
 
             case REPAIR:
                 g2d.setColor(station.getColor());
-                g2d.setStroke(new BasicStroke(2 * zoom));
+                g2d.setStroke(cached.outlineStroke);
                 g2d.draw(cached.stationShape);
 
-                g2d.setColor(station.getColor().darker());
+                g2d.setColor(stationColor(station, PALETTE_DARKER));
                 g2d.fill(specialShape);
                 break;
         }
@@ -631,11 +717,11 @@ public class StationRender {
     private static void drawWaterEffect(Station station, Graphics2D g2d, CachedStation cached, float zoom) {
         if (station.getType() == StationType.PLANNED || station.getType() == StationType.BUILDING ||
                 station.getType() == StationType.CLOSED || station.getType() == StationType.DESTROYED) {
-            g2d.setColor(station.getWorld().getWorldColorAt(station.getX(), station.getY()).darker().darker());
-            g2d.setStroke(new BasicStroke(2 * zoom));
+            g2d.setColor(worldColor(station, PALETTE_DARKEST));
+            g2d.setStroke(cached.outlineStroke);
             g2d.draw(cached.waterOutlineShape);
         } else {
-            g2d.setColor(station.getWorld().getWorldColorAt(station.getX(), station.getY()));
+            g2d.setColor(worldColor(station, PALETTE_BASE));
             g2d.fill(cached.waterShape);
         }
     }
@@ -669,16 +755,17 @@ public class StationRender {
      * UTILITY METHODS
      **************************/
 
-    public static void clearCache() {
+    public static synchronized void clearCache() {
         vectorCache.clear();
+        transferCache.clear();
+        paletteCache.clear();
     }
 
     public static void clearCacheForStation(Station station) {
-        // Удаляем все кэшированные данные для конкретной станции
-        vectorCache.keySet().removeIf(key -> key.contains(station.getX() + "_" + station.getY()));
+        // Формы не зависят от позиции станции - сбрасывать для отдельной станции нечего
     }
 
-    public static int getCacheSize() {
+    public static synchronized int getCacheSize() {
         return vectorCache.size();
     }
 }
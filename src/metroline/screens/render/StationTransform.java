@@ -0,0 +1,61 @@
+package metroline.screens.render;
+
+import metroline.objects.gameobjects.GameObject;
+
+/**
+ * World-to-screen transform of tile positions used by the object renderers.
+ * Positions are computed on the fly from the tile, offset and zoom, so nothing has to be
+ * cached or invalidated when the view is panned or zoomed.
+ * @author Tesmio
+ */
+public final class StationTransform {
+    public static final int TILE_SIZE = 32;
+    private static final int HALF_TILE = TILE_SIZE / 2;
+
+    private StationTransform() {
+    }
+
+    /**
+     * Gets the left edge of the object's tile on screen
+     * @param object Object on the tile
+     * @param offsetX Horizontal offset in world units
+     * @param zoom Current zoom
+     * @return Screen X of the tile origin
+     */
+    public static float cellOriginX(GameObject object, int offsetX, float zoom) {
+        return (object.getX() * TILE_SIZE + offsetX) * zoom;
+    }
+
+    /**
+     * Gets the top edge of the object's tile on screen
+     * @param object Object on the tile
+     * @param offsetY Vertical offset in world units
+     * @param zoom Current zoom
+     * @return Screen Y of the tile origin
+     */
+    public static float cellOriginY(GameObject object, int offsetY, float zoom) {
+        return (object.getY() * TILE_SIZE + offsetY) * zoom;
+    }
+
+    /**
+     * Gets the centre of the object's tile on screen, truncated to a pixel
+     * @param object Object on the tile
+     * @param offsetX Horizontal offset in world units
+     * @param zoom Current zoom
+     * @return Screen X of the tile centre
+     */
+    public static int cellCenterX(GameObject object, int offsetX, float zoom) {
+        return (int) ((object.getX() * TILE_SIZE + offsetX + HALF_TILE) * zoom);
+    }
+
+    /**
+     * Gets the centre of the object's tile on screen, truncated to a pixel
+     * @param object Object on the tile
+     * @param offsetY Vertical offset in world units
+     * @param zoom Current zoom
+     * @return Screen Y of the tile centre
+     */
+    public static int cellCenterY(GameObject object, int offsetY, float zoom) {
+        return (int) ((object.getY() * TILE_SIZE + offsetY + HALF_TILE) * zoom);
+    }
+}
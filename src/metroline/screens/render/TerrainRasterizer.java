@@ -0,0 +1,216 @@
+package metroline.screens.render;
+
+import metroline.core.world.tiles.TerrainLayer;
+import metroline.core.world.tiles.WorldChunks;
+import metroline.core.world.tiles.WorldTile;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rasterizes static terrain straight into int pixel arrays.
+ * Colours come from a lookup table indexed by the quantized perm shade, so the inner loop is
+ * array reads and writes without {@code Color} objects or Graphics calls. The result matches
+ * {@link WorldTile#draw}: land is the base colour darkened by {@code (int) (perm * 50)} per
+ * channel, water is the river colour. Large areas are split into bands of chunk rows and
+ * rasterized in parallel on the common fork/join pool.
+ * @author Tesmio
+ */
+public final class TerrainRasterizer {
+    private static final int PERM_RANGE = 50; // как в WorldTile.drawLand
+    private static final int SHADES = 256;
+    private static final int WATER_RGB = 0xFF000000 | (70 << 16) | (130 << 8) | 180; // как RIVER_COLOR в WorldTile
+    private static final int BAND_ROWS = WorldChunks.CHUNK_SIZE;
+    // Меньше этого числа тайлов параллелить невыгодно
+    private static final int PARALLEL_THRESHOLD = BAND_ROWS * BAND_ROWS * 4;
+
+    // Последний элемент таблицы - базовый цвет, для которого она построена
+    private static volatile int[] landLut;
+
+    private TerrainRasterizer() {}
+
+    /**
+     * Gets the land colour table for a base colour, rebuilding it after a change
+     * @return Packed ARGB colours indexed by shade {@code (int) (perm * 50)}
+     */
+    private static int[] getLandLut(int base) {
+        int[] lut = landLut;
+        if (lut != null && lut[SHADES] == base) return lut;
+
+        lut = new int[SHADES + 1];
+        for (int shade = 0; shade < SHADES; shade++) {
+            lut[shade] = shade(base, shade);
+        }
+        lut[SHADES] = base;
+        landLut = lut;
+        return lut;
+    }
+
+    /**
+     * Gets the static colour of one tile from the land colour table, as drawn in the terrain image
+     * @param terrain Terrain layer
+     * @param x X coordinate, in bounds
+     * @param y Y coordinate, in bounds
+     * @return Packed ARGB colour
+     */
+    public static int colorAt(TerrainLayer terrain, int x, int y) {
+        int index = terrain.index(x, y);
+        if (terrain.isWater(index)) return WATER_RGB;
+        int base = WorldTile.getStaticBaseTileRGB();
+        int shade = (int) (terrain.getPerm(index) * PERM_RANGE);
+        return shade >= 0 && shade < SHADES ? getLandLut(base)[shade] : shade(base, shade);
+    }
+
+    private static int shade(int base, int shade) {
+        int r = Math.max(0, Math.min(255, ((base >> 16) & 0xFF) - shade));
+        int g = Math.max(0, Math.min(255, ((base >> 8) & 0xFF) - shade));
+        int b = Math.max(0, Math.min(255, (base & 0xFF) - shade));
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Gets the pixel array of an image created with an int pixel type
+     */
+    public static int[] pixelsOf(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Rasterizes a rectangle of tiles, in parallel for large areas
+     * @param terrain Source terrain
+     * @param pixels Target pixels, row-major
+     * @param stride Length of a target row
+     * @param tilePixels Size of a tile in target pixels
+     * @param x0 First column, inclusive
+     * @param y0 First row, inclusive
+     * @param x1 Last column, exclusive
+     * @param y1 Last row, exclusive
+     * @param originX Target pixel of the left edge of column x0
+     * @param originY Target pixel of the top edge of row y0
+     */
+    public static void rasterize(TerrainLayer terrain, int[] pixels, int stride, int tilePixels,
+            int x0, int y0, int x1, int y1, int originX, int originY) {
+        if (x1 <= x0 || y1 <= y0) return;
+        int base = WorldTile.getStaticBaseTileRGB();
+        Target target = new Target(terrain, pixels, stride, tilePixels, x0, x1, y0, originX, originY,
+                base, getLandLut(base));
+        if ((long) (x1 - x0) * (y1 - y0) < PARALLEL_THRESHOLD) {
+            target.rasterizeRows(y0, y1);
+        } else {
+            ForkJoinPool.commonPool().invoke(new BandTask(target, y0, y1));
+        }
+    }
+
+    /**
+     * Rasterizes a rectangle of tiles into a new image
+     * @param tilePixels Size of a tile in image pixels
+     * @return Opaque image of {@code (x1 - x0) * tilePixels} by {@code (y1 - y0) * tilePixels} pixels
+     */
+    public static BufferedImage rasterizeImage(TerrainLayer terrain, int tilePixels, int x0, int y0, int x1, int y1) {
+        BufferedImage image = new BufferedImage((x1 - x0) * tilePixels, (y1 - y0) * tilePixels,
+                BufferedImage.TYPE_INT_RGB);
+        rasterize(terrain, pixelsOf(image), image.getWidth(), tilePixels, x0, y0, x1, y1, 0, 0);
+        return image;
+    }
+
+    /**
+     * Parameters of one rasterization shared by its bands
+     */
+    private static final class Target {
+        final TerrainLayer terrain;
+        final int[] pixels;
+        final int stride;
+        final int tilePixels;
+        final int x0;
+        final int x1;
+        final int y0;
+        final int originX;
+        final int originY;
+        final int base;
+        final int[] lut;
+
+        Target(TerrainLayer terrain, int[] pixels, int stride, int tilePixels, int x0, int x1, int y0,
+                int originX, int originY, int base, int[] lut) {
+            this.terrain = terrain;
+            this.pixels = pixels;
+            this.stride = stride;
+            this.tilePixels = tilePixels;
+            this.x0 = x0;
+            this.x1 = x1;
+            this.y0 = y0;
+            this.originX = originX;
+            this.originY = originY;
+            this.base = base;
+            this.lut = lut;
+        }
+
+        int colorAt(int x, int y) {
+            int index = terrain.index(x, y);
+            if (terrain.isWater(index)) return WATER_RGB;
+            int shade = (int) (terrain.getPerm(index) * PERM_RANGE);
+            return shade >= 0 && shade < SHADES ? lut[shade] : shade(base, shade);
+        }
+
+        void rasterizeRows(int fromY, int toY) {
+            int width = (x1 - x0) * tilePixels;
+            for (int y = fromY; y < toY; y++) {
+                int rowStart = (originY + (y - y0) * tilePixels) * stride + originX;
+                int p = rowStart;
+                int cy = y >> WorldChunks.CHUNK_SHIFT;
+                for (int x = x0; x < x1; ) {
+                    // Пустой чанк - сплошная земля базового цвета, без обращений к слою
+                    int chunkEnd = Math.min(x1, ((x >> WorldChunks.CHUNK_SHIFT) + 1) * WorldChunks.CHUNK_SIZE);
+                    if (!terrain.isChunkAllocated(x >> WorldChunks.CHUNK_SHIFT, cy)) {
+                        int end = p + (chunkEnd - x) * tilePixels;
+                        Arrays.fill(pixels, p, end, lut[0]);
+                        p = end;
+                        x = chunkEnd;
+                        continue;
+                    }
+                    for (; x < chunkEnd; x++) {
+                        int color = colorAt(x, y);
+                        for (int i = 0; i < tilePixels; i++) {
+                            pixels[p++] = color;
+                        }
+                    }
+                }
+                // Остальные строки тайла повторяют первую
+                for (int i = 1; i < tilePixels; i++) {
+                    System.arraycopy(pixels, rowStart, pixels, rowStart + i * stride, width);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits rows into bands of chunk rows until a band is small enough
+     */
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Target target;
+        private final int fromY;
+        private final int toY;
+
+        BandTask(Target target, int fromY, int toY) {
+            this.target = target;
+            this.fromY = fromY;
+            this.toY = toY;
+        }
+
+        @Override
+        protected void compute() {
+            if (toY - fromY <= BAND_ROWS) {
+                target.rasterizeRows(fromY, toY);
+                return;
+            }
+            // Граница по строкам чанков, чтобы полосы не делили чанк
+            int mid = ((fromY + toY) >>> 1) & ~(BAND_ROWS - 1);
+            if (mid <= fromY) mid = fromY + BAND_ROWS;
+            invokeAll(new BandTask(target, fromY, mid), new BandTask(target, mid, toY));
+        }
+    }
+}
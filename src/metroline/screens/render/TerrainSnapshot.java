@@ -0,0 +1,166 @@
+package metroline.screens.render;
+
+import metroline.core.world.tiles.TerrainLayer;
+import metroline.core.world.tiles.WorldChunks;
+import metroline.core.world.tiles.WorldTile;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Compact in-memory copy of the rendered terrain colours.
+ * Terrain has few distinct colours (base colour shades by perm, and water), so every tile is
+ * stored as a palette index and every row is run-length encoded as (index, length - 1) byte
+ * pairs. Typical terrain takes a small fraction of the 4 bytes per tile of an int image.
+ * The static caches restore their tiles from the snapshot instead of reading the terrain,
+ * including after their video memory surfaces were lost. Terrain edits re-encode only the
+ * edited rows.
+ * @author Tesmio
+ */
+public class TerrainSnapshot {
+    private static final int MAX_PALETTE = 256;
+    private static final int MAX_RUN = 256;
+    private static final int BAND_ROWS = WorldChunks.CHUNK_SIZE;
+
+    private final TerrainLayer terrain;
+    private final int baseColor;
+    private final int[] palette = new int[MAX_PALETTE];
+    private int paletteSize;
+    private final byte[][] rows;
+    private long encodedBytes;
+
+    private TerrainSnapshot(TerrainLayer terrain) {
+        this.terrain = terrain;
+        this.baseColor = WorldTile.getStaticBaseTileRGB();
+        this.rows = new byte[terrain.getHeight()][];
+    }
+
+    /**
+     * Encodes the whole terrain
+     * @return Snapshot or null if the terrain has more colours than the palette holds
+     */
+    public static TerrainSnapshot create(TerrainLayer terrain) {
+        TerrainSnapshot snapshot = new TerrainSnapshot(terrain);
+        return snapshot.encodeRows(0, terrain.getHeight()) ? snapshot : null;
+    }
+
+    /**
+     * Checks that the snapshot still describes this terrain with the current base colour
+     */
+    public boolean matches(TerrainLayer terrain) {
+        return this.terrain == terrain && baseColor == WorldTile.getStaticBaseTileRGB();
+    }
+
+    /**
+     * Re-encodes edited rows
+     * @param fromY First row, inclusive
+     * @param toY Last row, inclusive
+     * @return False if the new colours do not fit the palette and the snapshot must be dropped
+     */
+    public synchronized boolean update(int fromY, int toY) {
+        return encodeRows(Math.max(0, fromY), Math.min(terrain.getHeight(), toY + 1));
+    }
+
+    private synchronized boolean encodeRows(int fromY, int toY) {
+        int width = terrain.getWidth();
+        byte[] buffer = new byte[width * 2];
+        for (int bandY = fromY; bandY < toY; bandY += BAND_ROWS) {
+            int bandEnd = Math.min(toY, bandY + BAND_ROWS);
+            BufferedImage band = TerrainRasterizer.rasterizeImage(terrain, 1, 0, bandY, width, bandEnd);
+            int[] colors = TerrainRasterizer.pixelsOf(band);
+            for (int y = bandY; y < bandEnd; y++) {
+                int length = encodeRow(colors, (y - bandY) * width, width, buffer);
+                if (length < 0) return false;
+                byte[] old = rows[y];
+                rows[y] = Arrays.copyOf(buffer, length);
+                encodedBytes += length - (old == null ? 0 : old.length);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes one row of colours into runs
+     * @return Encoded length in bytes or -1 if the palette overflowed
+     */
+    private int encodeRow(int[] colors, int offset, int width, byte[] out) {
+        int length = 0;
+        int x = 0;
+        while (x < width) {
+            int color = colors[offset + x];
+            int run = 1;
+            while (x + run < width && run < MAX_RUN && colors[offset + x + run] == color) {
+                run++;
+            }
+            int index = paletteIndex(color);
+            if (index < 0) return -1;
+            out[length++] = (byte) index;
+            out[length++] = (byte) (run - 1);
+            x += run;
+        }
+        return length;
+    }
+
+    private int paletteIndex(int color) {
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == color) return i;
+        }
+        if (paletteSize == MAX_PALETTE) return -1;
+        palette[paletteSize] = color;
+        return paletteSize++;
+    }
+
+    /**
+     * Decodes a rectangle of tiles. Synchronized with {@link #update}: the mip builder thread
+     * decodes while the event thread re-encodes edited rows.
+     * @param pixels Target pixels, row-major
+     * @param stride Length of a target row
+     * @param x0 First column, inclusive
+     * @param y0 First row, inclusive
+     * @param x1 Last column, exclusive
+     * @param y1 Last row, exclusive
+     */
+    public synchronized void decode(int[] pixels, int stride, int x0, int y0, int x1, int y1) {
+        for (int y = y0; y < y1; y++) {
+            byte[] row = rows[y];
+            int p = (y - y0) * stride;
+            int x = 0;
+            int i = 0;
+            while (i < row.length && x < x1) {
+                int color = palette[row[i] & 0xFF];
+                int runEnd = x + (row[i + 1] & 0xFF) + 1;
+                i += 2;
+                // Серии левее области только пропускаются
+                if (runEnd > x0) {
+                    int from = Math.max(x, x0);
+                    int to = Math.min(runEnd, x1);
+                    Arrays.fill(pixels, p + from - x0, p + to - x0, color);
+                }
+                x = runEnd;
+            }
+        }
+    }
+
+    /**
+     * Decodes a rectangle of tiles into an image with one pixel per tile
+     */
+    public BufferedImage decodeImage(int x0, int y0, int x1, int y1) {
+        BufferedImage image = new BufferedImage(x1 - x0, y1 - y0, BufferedImage.TYPE_INT_RGB);
+        decode(TerrainRasterizer.pixelsOf(image), image.getWidth(), x0, y0, x1, y1);
+        return image;
+    }
+
+    /**
+     * Gets the memory taken by the encoded rows, their array headers and the palette
+     */
+    public long getEncodedBytes() {
+        return encodedBytes + rows.length * 16L + palette.length * 4L;
+    }
+
+    /**
+     * Gets the memory the same terrain takes as an int image with one pixel per tile
+     */
+    public long getRawBytes() {
+        return (long) terrain.getWidth() * terrain.getHeight() * 4;
+    }
+}
@@ -3,115 +3,158 @@ package metroline.screens.render;
 import metroline.objects.gameobjects.PathPoint;
 import metroline.objects.gameobjects.Tunnel;
 import metroline.objects.enums.TunnelType;
+import metroline.util.collections.LongLruCache;
 
 import java.awt.*;
 import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Класс для отрисовки туннелей с кэшированием геометрии
+ * Класс для отрисовки туннелей с кэшированием геометрии.
+ * Формы хранятся на туннель (по uniqueId) и на шаг зума; запись сверяется с версией
+ * геометрии туннеля, которая меняется при пересчете пути и смене типа.
  */
 public class TunnelRender {
 
-    private static final Map<String, CachedTunnel> tunnelCache = new ConcurrentHashMap<>();
-    private static final Map<String, Shape> selectionCache = new ConcurrentHashMap<>();
-    private static final Map<String, Shape> controlPointCache = new ConcurrentHashMap<>();
+    private static final int CACHE_CAPACITY = 4096;
+    // Шаг квантования зума, соответствует прежнему ключу "%.2f"
+    private static final int ZOOM_BUCKETS = 100;
+    // Сколько разных зумов помнит один туннель
+    private static final int ZOOM_SLOTS = 4;
+
+    private static final LongLruCache<TunnelEntry> tunnelCache = new LongLruCache<>(CACHE_CAPACITY);
+    private static final Color SELECTION_FILL = new Color(255, 255, 0, 100);
+    private static final Color CONTROL_FILL = new Color(255, 255, 0, 180);
+
+    /**
+     * Cached geometry of one tunnel for its current version
+     */
+    private static class TunnelEntry {
+        final Tunnel tunnel;
+        final int version;
+        final CachedTunnel[] slots = new CachedTunnel[ZOOM_SLOTS];
+        int nextSlot;
+
+        TunnelEntry(Tunnel tunnel, int version) {
+            this.tunnel = tunnel;
+            this.version = version;
+        }
+    }
 
     private static class CachedTunnel {
-        public final Shape activeShape;
-        public final Shape plannedShape;
-        public final Shape buildingShape;
-        public final Shape destroyedOuterShape;
-        public final Shape destroyedInnerShape;
-
-        public CachedTunnel(Shape activeShape, Shape plannedShape, Shape buildingShape,
-                Shape destroyedOuterShape, Shape destroyedInnerShape) {
-            this.activeShape = activeShape;
-            this.plannedShape = plannedShape;
-            this.buildingShape = buildingShape;
-            this.destroyedOuterShape = destroyedOuterShape;
-            this.destroyedInnerShape = destroyedInnerShape;
+        public final int zoomBucket;
+        // Заливка для ACTIVE/PLANNED/BUILDING, внешний контур для DESTROYED
+        public final Shape shape;
+        public final Shape destroyedCutout;
+        public final Shape destroyedCore;
+        public Shape selectionShape;
+        public Shape centerLine;
+        public Shape controlShape;
+        public BasicStroke selectionStroke;
+        public BasicStroke controlStroke;
+
+        public CachedTunnel(int zoomBucket, Shape shape, Shape destroyedCutout, Shape destroyedCore) {
+            this.zoomBucket = zoomBucket;
+            this.shape = shape;
+            this.destroyedCutout = destroyedCutout;
+            this.destroyedCore = destroyedCore;
         }
     }
 
+    private static int zoomBucket(float zoom) {
+        return Math.max(1, Math.round(zoom * ZOOM_BUCKETS));
+    }
+
+    /**
+     * Gets the geometry of the tunnel for the zoom, building it if the tunnel changed
+     */
+    private static synchronized CachedTunnel getCached(Tunnel tunnel, float zoom) {
+        int bucket = zoomBucket(zoom);
+        TunnelEntry entry = tunnelCache.get(tunnel.getUniqueId());
+        if (entry == null || entry.tunnel != tunnel || entry.version != tunnel.getGeometryVersion()) {
+            entry = new TunnelEntry(tunnel, tunnel.getGeometryVersion());
+            tunnelCache.put(tunnel.getUniqueId(), entry);
+        }
+        for (CachedTunnel cached : entry.slots) {
+            if (cached != null && cached.zoomBucket == bucket) {
+                return cached;
+            }
+        }
+        CachedTunnel cached = createCachedTunnel(tunnel, bucket);
+        entry.slots[entry.nextSlot] = cached;
+        entry.nextSlot = (entry.nextSlot + 1) % ZOOM_SLOTS;
+        return cached;
+    }
+
     /**
      * Отрисовка туннеля с кэшированием
      */
     public static void drawTunnel(Tunnel tunnel, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
         if (tunnel.getPath().size() < 2) return;
 
-        String cacheKey = createCacheKey(tunnel, offsetX, offsetY, zoom);
-        CachedTunnel cached = tunnelCache.get(cacheKey);
-
-        if (cached == null) {
-            cached = createCachedTunnel(tunnel, offsetX, offsetY, zoom);
-            tunnelCache.put(cacheKey, cached);
-        }
+        CachedTunnel cached = getCached(tunnel, zoom);
 
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        switch (tunnel.getType()) {
-            case PLANNED:
-                g2d.setColor(tunnel.getStart().getColor());
-                g2d.fill(cached.plannedShape);
-                break;
-            case BUILDING:
-                g2d.setColor(tunnel.getStart().getColor());
-                g2d.fill(cached.buildingShape);
-                break;
-            case DESTROYED:
-                drawCachedDestroyedTunnel(tunnel, g2d, cached, offsetX, offsetY, zoom);
-                break;
-            default: // ACTIVE
-                g2d.setColor(tunnel.getStart().getColor());
-                g2d.fill(cached.activeShape);
+        // Формы построены без смещения - сдвиг задается переносом
+        float shiftX = offsetX * zoom;
+        float shiftY = offsetY * zoom;
+        g2d.translate(shiftX, shiftY);
+
+        if (tunnel.getType() == TunnelType.DESTROYED) {
+            drawCachedDestroyedTunnel(tunnel, g2d, cached);
+        } else {
+            g2d.setColor(tunnel.getStart().getColor());
+            g2d.fill(cached.shape);
         }
+        g2d.translate(-shiftX, -shiftY);
     }
 
     /**
-     * Создание кэшированного туннеля
+     * Создание кэшированного туннеля: строятся только формы текущего типа
      */
-    private static CachedTunnel createCachedTunnel(Tunnel tunnel, int offsetX, int offsetY, float zoom) {
+    private static CachedTunnel createCachedTunnel(Tunnel tunnel, int zoomBucket) {
+        float zoom = zoomBucket / (float) ZOOM_BUCKETS;
         float baseWidth = 12 * zoom;
         float innerWidth = baseWidth - 4 * zoom;
 
-        Shape activeShape = createStrokedShape(tunnel.getPath(), offsetX, offsetY, zoom, baseWidth);
-        Shape plannedShape = createTunnelArea(tunnel, offsetX, offsetY, zoom, baseWidth, innerWidth);
-        Shape buildingShape = createBuildingTunnelShape(tunnel, offsetX, offsetY, zoom, baseWidth, innerWidth);
-
-        Shape destroyedOuterShape = createStrokedShape(tunnel.getPath(), offsetX, offsetY, zoom, baseWidth);
-        Shape destroyedInnerShape = createStrokedShape(tunnel.getPath(), offsetX, offsetY, zoom, innerWidth);
-
-        return new CachedTunnel(activeShape, plannedShape, buildingShape,
-                destroyedOuterShape, destroyedInnerShape);
+        switch (tunnel.getType()) {
+            case PLANNED:
+                return new CachedTunnel(zoomBucket,
+                        createTunnelArea(tunnel, 0, 0, zoom, baseWidth, innerWidth), null, null);
+            case BUILDING:
+                return new CachedTunnel(zoomBucket,
+                        createBuildingTunnelShape(tunnel, 0, 0, zoom, baseWidth, innerWidth), null, null);
+            case DESTROYED:
+                Shape outer = createStrokedShape(tunnel.getPath(), 0, 0, zoom, baseWidth);
+                Area cutout = new Area(outer);
+                cutout.subtract(new Area(createStrokedShape(tunnel.getPath(), 0, 0, zoom, innerWidth)));
+                // Inner black stripe with CORRECT zoom
+                float coreWidth = (12 * zoom) - (6 * zoom);
+                Shape core = createStrokedShape(tunnel.getPath(), 0, 0, zoom, coreWidth);
+                return new CachedTunnel(zoomBucket, outer, cutout, core);
+            default: // ACTIVE
+                return new CachedTunnel(zoomBucket,
+                        createStrokedShape(tunnel.getPath(), 0, 0, zoom, baseWidth), null, null);
+        }
     }
 
     /**
      * Отрисовка разрушенного туннеля из кэша
      */
-    private static void drawCachedDestroyedTunnel(Tunnel tunnel, Graphics2D g2d, CachedTunnel cached,
-            int offsetX, int offsetY, float zoom) {
+    private static void drawCachedDestroyedTunnel(Tunnel tunnel, Graphics2D g2d, CachedTunnel cached) {
         // Outer contour
         g2d.setColor(tunnel.getStart().getColor());
-        g2d.fill(cached.destroyedOuterShape);
+        g2d.fill(cached.shape);
 
         // Transparent cutout
-        Area destroyedArea = new Area(cached.destroyedOuterShape);
-        destroyedArea.subtract(new Area(cached.destroyedInnerShape));
-
         Composite originalComposite = g2d.getComposite();
         g2d.setComposite(AlphaComposite.Clear);
-        g2d.fill(destroyedArea);
+        g2d.fill(cached.destroyedCutout);
         g2d.setComposite(originalComposite);
 
-        // Inner black stripe with CORRECT zoom
-        float coreWidth = (12 * zoom) - (6 * zoom); // Correctly scaled width
-        Shape coreShape = createStrokedShape(tunnel.getPath(), offsetX, offsetY, zoom, coreWidth);
         g2d.setColor(Color.BLACK);
-        g2d.fill(coreShape);
+        g2d.fill(cached.destroyedCore);
     }
 
     /**
@@ -197,23 +240,26 @@ public class TunnelRender {
     public static void drawTunnelSelection(Tunnel tunnel, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
         if (tunnel.getPath().size() < 2) return;
 
-        String cacheKey = "selection_" + createBaseCacheKey(tunnel, offsetX, offsetY, zoom);
-        Shape selectionShape = selectionCache.get(cacheKey);
-
-        if (selectionShape == null) {
-            selectionShape = createStrokedShape(tunnel.getPath(), offsetX, offsetY, zoom, 15 * zoom);
-            selectionCache.put(cacheKey, selectionShape);
+        CachedTunnel cached = getCached(tunnel, zoom);
+        if (cached.selectionShape == null) {
+            float bucketZoom = cached.zoomBucket / (float) ZOOM_BUCKETS;
+            cached.selectionShape = createStrokedShape(tunnel.getPath(), 0, 0, bucketZoom, 15 * bucketZoom);
+            cached.centerLine = createPathShape(tunnel.getPath(), 0, 0, bucketZoom);
+            cached.selectionStroke = new BasicStroke(2 * bucketZoom);
         }
 
+        float shiftX = offsetX * zoom;
+        float shiftY = offsetY * zoom;
+        g2d.translate(shiftX, shiftY);
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setColor(new Color(255, 255, 0, 100)); // Полупрозрачный желтый
-        g2d.fill(selectionShape);
+        g2d.setColor(SELECTION_FILL); // Полупрозрачный желтый
+        g2d.fill(cached.selectionShape);
 
         // Контур выделения
         g2d.setColor(Color.YELLOW);
-        g2d.setStroke(new BasicStroke(2 * zoom));
-        GeneralPath path = createPathShape(tunnel.getPath(), offsetX, offsetY, zoom);
-        g2d.draw(path);
+        g2d.setStroke(cached.selectionStroke);
+        g2d.draw(cached.centerLine);
+        g2d.translate(-shiftX, -shiftY);
     }
 
     /**
@@ -222,73 +268,51 @@ public class TunnelRender {
     public static void drawControlPoint(Tunnel tunnel, Graphics2D g2d, int offsetX, int offsetY, float zoom) {
         if (tunnel.getPathPoint() == null) return;
 
-        String cacheKey = "control_" + tunnel.getPathPoint().getX() + "_" + tunnel.getPathPoint().getY() + "_" + zoom;
-        Shape controlShape = controlPointCache.get(cacheKey);
-
-        if (controlShape == null) {
-            int x = (int)((tunnel.getPathPoint().getX() * 32 + offsetX + 16) * zoom);
-            int y = (int)((tunnel.getPathPoint().getY() * 32 + offsetY + 16) * zoom);
-            int size = (int)(8 * zoom);
-            controlShape = new java.awt.geom.Ellipse2D.Float(x - size/2, y - size/2, size, size);
-            controlPointCache.put(cacheKey, controlShape);
+        // Точка изгиба меняется только через calculatePath, то есть вместе с версией геометрии
+        CachedTunnel cached = getCached(tunnel, zoom);
+        if (cached.controlShape == null) {
+            float bucketZoom = cached.zoomBucket / (float) ZOOM_BUCKETS;
+            int x = (int)((tunnel.getPathPoint().getX() * 32 + 16) * bucketZoom);
+            int y = (int)((tunnel.getPathPoint().getY() * 32 + 16) * bucketZoom);
+            int size = (int)(8 * bucketZoom);
+            cached.controlShape = new java.awt.geom.Ellipse2D.Float(x - size/2, y - size/2, size, size);
+            cached.controlStroke = new BasicStroke(1.5f * bucketZoom);
         }
 
+        float shiftX = offsetX * zoom;
+        float shiftY = offsetY * zoom;
+        g2d.translate(shiftX, shiftY);
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         // Заливка точки
-        g2d.setColor(new Color(255, 255, 0, 180));
-        g2d.fill(controlShape);
+        g2d.setColor(CONTROL_FILL);
+        g2d.fill(cached.controlShape);
 
         // Контур точки
         g2d.setColor(Color.YELLOW);
-        g2d.setStroke(new BasicStroke(1.5f * zoom));
-        g2d.draw(controlShape);
-    }
-
-    /**
-     * Создание ключа для кэша
-     */
-    private static String createCacheKey(Tunnel tunnel, int offsetX, int offsetY, float zoom) {
-        return createBaseCacheKey(tunnel, offsetX, offsetY, zoom) + "_" + tunnel.getType();
-    }
-
-    private static String createBaseCacheKey(Tunnel tunnel, int offsetX, int offsetY, float zoom) {
-        StringBuilder key = new StringBuilder();
-        key.append("tunnel_").append(tunnel.getStart().getX()).append("_").append(tunnel.getStart().getY())
-           .append("_").append(tunnel.getEnd().getX()).append("_").append(tunnel.getEnd().getY())
-           .append("_").append(offsetX).append("_").append(offsetY)
-           .append("_").append(String.format("%.2f", zoom));
-
-        // Добавляем путь для уникальности
-        for (PathPoint point : tunnel.getPath()) {
-            key.append("_").append(point.getX()).append("_").append(point.getY());
-        }
-
-        return key.toString();
+        g2d.setStroke(cached.controlStroke);
+        g2d.draw(cached.controlShape);
+        g2d.translate(-shiftX, -shiftY);
     }
 
     /**
      * Очистка кэша
      */
-    public static void clearCache() {
+    public static synchronized void clearCache() {
         tunnelCache.clear();
-        selectionCache.clear();
-        controlPointCache.clear();
     }
 
     /**
      * Очистка кэша для конкретного туннеля
      */
-    public static void clearCacheForTunnel(Tunnel tunnel) {
-        String baseKey = createBaseCacheKey(tunnel, 0, 0, 1.0f);
-        tunnelCache.keySet().removeIf(key -> key.contains(baseKey));
-        selectionCache.keySet().removeIf(key -> key.contains(baseKey));
+    public static synchronized void clearCacheForTunnel(Tunnel tunnel) {
+        tunnelCache.remove(tunnel.getUniqueId());
     }
 
     /**
      * Получение размера кэша
      */
-    public static int getCacheSize() {
-        return tunnelCache.size() + selectionCache.size() + controlPointCache.size();
+    public static synchronized int getCacheSize() {
+        return tunnelCache.size();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package metroline.screens.render;
+
+import metroline.core.world.tiles.TerrainLayer;
+import metroline.core.world.tiles.WorldChunks;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Cached mask of the water tiles, one pixel per tile, split by terrain chunks.
+ * A chunk mask is rasterized from the water bitmask on first use and again only after an edit
+ * of that chunk; chunks without water have no mask at all. Water itself is baked into the static
+ * cache, the mask only feeds the animated shimmer, which blits the masks of the visible water
+ * chunks with a time-varying alpha instead of filling every water tile each frame.
+ * @author Tesmio
+ */
+public class WaterMask {
+    private static final int HIGHLIGHT_RGB = 0xDCEBFF;
+    private static final float BASE_ALPHA = 0.12f;
+    private static final float WAVE_ALPHA = 0.10f;
+    private static final double WAVE_SPEED = 1.5; // радиан в секунду
+
+    private TerrainLayer terrain;
+    private BufferedImage[] masks;
+    private boolean[] dirty;
+
+    // Статистика последнего кадра для отладки
+    private int chunksDrawn;
+    private int chunksRasterized;
+
+    /**
+     * Sets the terrain the mask is built from. Another terrain drops all masks.
+     */
+    public void setTerrain(TerrainLayer terrain) {
+        if (this.terrain == terrain) return;
+        this.terrain = terrain;
+        int chunks = terrain.getChunksX() * terrain.getChunksY();
+        masks = new BufferedImage[chunks];
+        dirty = new boolean[chunks];
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        if (dirty == null) return;
+        Arrays.fill(dirty, true);
+    }
+
+    /**
+     * Marks the chunks covering a rectangle of tiles for rebuild
+     * @param fromX First column, inclusive
+     * @param fromY First row, inclusive
+     * @param toX Last column, inclusive
+     * @param toY Last row, inclusive
+     */
+    public void invalidateRegion(int fromX, int fromY, int toX, int toY) {
+        if (terrain == null) return;
+        int cx0 = Math.max(0, fromX >> WorldChunks.CHUNK_SHIFT);
+        int cy0 = Math.max(0, fromY >> WorldChunks.CHUNK_SHIFT);
+        int cx1 = Math.min(terrain.getChunksX() - 1, toX >> WorldChunks.CHUNK_SHIFT);
+        int cy1 = Math.min(terrain.getChunksY() - 1, toY >> WorldChunks.CHUNK_SHIFT);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                dirty[cy * terrain.getChunksX() + cx] = true;
+            }
+        }
+    }
+
+    /**
+     * Gets the mask of a chunk, rebuilding it if it was edited
+     * @return Mask with one pixel per tile, opaque on water, or null if the chunk has no water
+     */
+    private BufferedImage getMask(int cx, int cy) {
+        int i = cy * terrain.getChunksX() + cx;
+        if (!dirty[i]) return masks[i];
+        dirty[i] = false;
+        if (!terrain.chunkHasWater(cx, cy)) {
+            masks[i] = null;
+            return null;
+        }
+
+        BufferedImage mask = masks[i];
+        if (mask == null) {
+            mask = new BufferedImage(WorldChunks.CHUNK_SIZE, WorldChunks.CHUNK_SIZE, BufferedImage.TYPE_INT_ARGB);
+            masks[i] = mask;
+        }
+        int[] pixels = ((DataBufferInt) mask.getRaster().getDataBuffer()).getData();
+        int x0 = cx * WorldChunks.CHUNK_SIZE;
+        int y0 = cy * WorldChunks.CHUNK_SIZE;
+        int x1 = Math.min(terrain.getWidth(), x0 + WorldChunks.CHUNK_SIZE);
+        int y1 = Math.min(terrain.getHeight(), y0 + WorldChunks.CHUNK_SIZE);
+        Arrays.fill(pixels, 0);
+        for (int y = y0; y < y1; y++) {
+            int row = (y - y0) * WorldChunks.CHUNK_SIZE - x0;
+            for (int x = x0; x < x1; x++) {
+                int index = terrain.index(x, y);
+                if (terrain.isWater(index)) {
+                    // На глубине блики слабее, у берега ярче
+                    int alpha = 255 - (int) (terrain.getWaterDepth(index) * 160);
+                    pixels[row + x] = (alpha << 24) | HIGHLIGHT_RGB;
+                }
+            }
+        }
+        chunksRasterized++;
+        return mask;
+    }
+
+    /**
+     * Draws the shimmer over the visible water
+     * @param g Graphics in world units
+     * @param visibleTiles Visible rectangle in tiles
+     * @param tileSize Tile size in world units
+     * @param seconds Animation time
+     */
+    public void drawAnimated(Graphics2D g, Rectangle visibleTiles, int tileSize, double seconds) {
+        chunksDrawn = 0;
+        chunksRasterized = 0;
+        if (terrain == null) return;
+
+        int chunkSize = WorldChunks.CHUNK_SIZE;
+        int cx0 = Math.max(0, visibleTiles.x >> WorldChunks.CHUNK_SHIFT);
+        int cy0 = Math.max(0, visibleTiles.y >> WorldChunks.CHUNK_SHIFT);
+        int cx1 = Math.min(terrain.getChunksX() - 1, (visibleTiles.x + visibleTiles.width) >> WorldChunks.CHUNK_SHIFT);
+        int cy1 = Math.min(terrain.getChunksY() - 1, (visibleTiles.y + visibleTiles.height) >> WorldChunks.CHUNK_SHIFT);
+
+        Composite oldComposite = g.getComposite();
+        Object oldInterpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        // Маска масштабируется в 32 раза, тайлы должны остаться резкими
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                if (!terrain.chunkHasWater(cx, cy)) continue;
+                BufferedImage mask = getMask(cx, cy);
+                if (mask == null) continue;
+                // Фаза волны сдвинута по диагонали, чтобы блик бежал по воде
+                float alpha = BASE_ALPHA + WAVE_ALPHA * (float) Math.sin(seconds * WAVE_SPEED + (cx + cy) * 0.7);
+                g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, Math.max(0f, alpha)));
+                int size = chunkSize * tileSize;
+                g.drawImage(mask, cx * size, cy * size, size, size, null);
+                chunksDrawn++;
+            }
+        }
+        g.setComposite(oldComposite);
+        if (oldInterpolation != null) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldInterpolation);
+        }
+    }
+
+    public int getChunksDrawn() { return chunksDrawn; }
+
+    public int getChunksRasterized() { return chunksRasterized; }
+}
@@ -3,21 +3,36 @@ package metroline.screens.worldscreens;
 import metroline.MainFrame;
 import metroline.core.world.GameWorld;
 import metroline.core.world.World;
+import metroline.core.world.WorldLayer;
+import metroline.core.world.index.WorldViewIndex;
+import metroline.core.world.tiles.TerrainLayer;
 import metroline.core.world.tiles.WorldTile;
 
+import metroline.input.selection.Selectable;
+import metroline.input.selection.SelectionManager;
 import metroline.objects.gameobjects.River;
+import metroline.objects.gameobjects.RiverPoint;
 import metroline.objects.gameobjects.StationLabel;
 import metroline.objects.gameobjects.Station;
 import metroline.objects.gameobjects.Tunnel;
 import metroline.screens.panel.LinesLegendWindow;
+import metroline.screens.render.LabelRender;
+import metroline.screens.render.LayerCompositor;
+import metroline.screens.render.RiverRender;
+import metroline.screens.render.StaticMipPyramid;
+import metroline.screens.render.StaticTileCache;
 import metroline.screens.render.StationRender;
-import metroline.util.compressor.WorldThreadImageCompressor;
+import metroline.screens.render.TerrainRasterizer;
+import metroline.screens.render.TerrainSnapshot;
+import metroline.screens.render.TunnelRender;
+import metroline.screens.render.WaterMask;
+import metroline.util.debug.FrameProfiler;
 
 import java.awt.*;
-import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.awt.image.VolatileImage;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 
@@ -26,84 +41,60 @@ public class CachedWorldScreen extends WorldScreen {
     protected static final int WORLD_TILE_SIZE = 16;
     protected static final int TILE_SIZE = 32;
     protected static final int CACHE_SCALE = 2;
+    // Ниже этого зума тайлу экрана хватает уровня пирамиды, полноразмерные тайлы не растеризуются
+    protected static final float TILE_CACHE_MIN_ZOOM = 0.5f;
 
-    protected VolatileImage staticWorldCache;
-
-
-    protected boolean staticCacheValid = false;
-
-    protected boolean worldChanged = true;
-
-    private long lastCacheUpdate = 0;
+    // Статический слой мира: тайлы 512x512, растеризуются лениво только для видимой области
+    protected final StaticTileCache staticTileCache = new StaticTileCache(this, this::rasterizeStaticTile);
+    // Уменьшенные копии статического слоя для мелкого зума, строятся в фоне
+    protected final StaticMipPyramid staticMipPyramid = new StaticMipPyramid(this, this::drawStaticRegion, TILE_SIZE);
 
     protected Font debugFont = new Font("Monospaced", Font.PLAIN, 12);
     public LinesLegendWindow legendWindow;
 
-    protected BufferedImage compressedStaticCache;
     protected BufferedImage compressedPaymentZonesCache;
+    // Палитра + RLE цветов местности, из нее восстанавливаются тайлы кэша
+    private volatile TerrainSnapshot terrainSnapshot;
+    private final Object snapshotLock = new Object();
     protected BufferedImage compressedPassengerZonesCache;
     protected BufferedImage compressedGrassZonesCache;
 
-    protected boolean compressedCacheValid = false;
     // Debug
     public boolean debugMode = false;
-    /**
-     * Обновляет сжатый кэш статического мира
-     */
-    protected void updateCompressedStaticCache() {
-        if (staticWorldCache == null || compressedCacheValid || compressedStaticCache != null) {
-            return; // Уже сжато
-        }
-        if (staticWorldCache == null) {
-            compressedStaticCache = null;
-            return;
-        }
-
-        int worldWidth = getWorld().getWidth();
-        int worldHeight = getWorld().getHeight();
-
-        compressedStaticCache = WorldThreadImageCompressor.compressWorldImageOptimized(
-                staticWorldCache,
-                worldWidth,
-                worldHeight,
-                TILE_SIZE
-        );
-
-        compressedCacheValid = true;
-    }
-
-    /**
-     * Восстанавливает VolatileImage из сжатого кэша
-     */
-    protected void restoreFromCompressedCache() {
-        if (compressedStaticCache == null) return;
-
-        GraphicsConfiguration gc = getGraphicsConfiguration();
-        if (gc == null) return;
-
-        // Распаковываем и создаем VolatileImage
-        BufferedImage decompressed = WorldThreadImageCompressor.decompressWorldImage(
-                compressedStaticCache,
-                TILE_SIZE
-        );
-
-        staticWorldCache = WorldThreadImageCompressor.convertBufferedImageToVolatileImage(
-                decompressed,
-                gc
-        );
-
-        // Освобождаем память от временных объектов
-        decompressed.flush();
-    }
+    // Время фаз кадра для отладочного оверлея
+    protected final FrameProfiler frameProfiler = new FrameProfiler();
+
+    // Динамические слои мира в экранных поверхностях, перерисовываются только после правок
+    protected final LayerCompositor layerCompositor = new LayerCompositor(this, frameProfiler);
+    private final int riverLayer = layerCompositor.addLayer("Rivers", this::drawRivers, FrameProfiler.Phase.RIVERS);
+    private final int tunnelLayer = layerCompositor.addLayer("Tunnels", this::drawTunnels, FrameProfiler.Phase.TUNNELS);
+    private final int stationBaseLayer = layerCompositor.addLayer("Station bases", this::drawStationBases, FrameProfiler.Phase.STATIONS);
+    private final int stationLayer = layerCompositor.addLayer("Stations", this::drawStationBodies, FrameProfiler.Phase.STATIONS);
+    private final int labelLayer = layerCompositor.addLayer("Labels", this::drawLabels, FrameProfiler.Phase.LABELS);
+    // Счетчики правок мира, с которыми слои были нарисованы
+    private final int[] drawnRevisions = new int[WorldLayer.values().length];
+    private World drawnWorld;
+
+    // Отсечение по видимой области: списки заполняются один раз за кадр в cullToViewport
+    private static final int LABEL_MARGIN_X = 16;
+    private static final int LABEL_MARGIN_Y = 2;
+    private static final Comparator<Station> STATION_ORDER =
+            Comparator.comparingInt(Station::getY).thenComparingInt(Station::getX);
+    protected final List<River> visibleRivers = new ArrayList<>();
+    protected final List<Tunnel> visibleTunnels = new ArrayList<>();
+    protected final List<Station> visibleStations = new ArrayList<>();
+    protected final List<StationLabel> visibleLabels = new ArrayList<>();
+    protected Rectangle visibleTiles = new Rectangle();
+
+    // Маска воды для анимированных бликов, сама вода уже запечена в статический кэш
+    protected final WaterMask waterMask = new WaterMask();
+    protected boolean animatedWater = false;
+    private final long animationStartTime = System.nanoTime();
 
     /**
      * Освобождает память, занятую сжатыми кэшами
      */
     public void flushCompressedCaches() {
-        if (compressedStaticCache != null) {
-            compressedStaticCache.flush();
-            compressedStaticCache = null;
-        }
         if (compressedPaymentZonesCache != null) {
             compressedPaymentZonesCache.flush();
             compressedPaymentZonesCache = null;
@@ -116,11 +107,16 @@ public class CachedWorldScreen extends WorldScreen {
             compressedGrassZonesCache.flush();
             compressedGrassZonesCache = null;
         }
-        compressedCacheValid = false;
     }
 
     public CachedWorldScreen(MainFrame parent, World world) {
         super(parent, world);
+        // Выделенная метка рисуется поверх слоев, поэтому слой меток зависит от выделения
+        SelectionManager.getInstance().addListener((previous, current) -> {
+            if (previous instanceof StationLabel || current instanceof StationLabel) {
+                layerCompositor.invalidate(labelLayer);
+            }
+        });
     }
 
     public void setLegendWindow(LinesLegendWindow legendWindow) {
@@ -161,69 +157,74 @@ public class CachedWorldScreen extends WorldScreen {
     }
 
     public void invalidateCache() {
-        staticCacheValid = false;
-
-        compressedCacheValid = false;
-        worldChanged = true;
-        if (staticWorldCache != null) {
-            staticWorldCache.flush();
-            staticWorldCache = null;
-        }
-        // Освобождаем сжатые кэши при инвалидации
+        // Поверхности тайлов сохраняются, перерисовываются при следующем показе
+        staticTileCache.invalidateAll();
+        staticMipPyramid.invalidateAll();
+        layerCompositor.invalidateAll();
+        waterMask.invalidateAll();
+        terrainSnapshot = null;
         flushCompressedCaches();
     }
-    protected void updateStaticWorldCache(int width, int height) {
-        if (width <= 0 || height <= 0) {
-            staticCacheValid = false;
-            return;
-        }
-
-        boolean needsRecreation = needToRecreateCache(staticWorldCache, width, height);
 
-        if (needsRecreation) {
-            if (staticWorldCache != null) {
-                staticWorldCache.flush();
-            }
-            staticWorldCache = createCompatibleVolatileImage(width * TILE_SIZE, height * TILE_SIZE);
+    /**
+     * Redraws only the cached tiles covering a rectangle of world tiles.
+     * Use it for terrain edits so that the cost follows the edited area, not the world size.
+     * @param x0 First column, inclusive
+     * @param y0 First row, inclusive
+     * @param x1 Last column, inclusive
+     * @param y1 Last row, inclusive
+     */
+    public void invalidateRegion(int x0, int y0, int x1, int y1) {
+        int fromX = Math.min(x0, x1), toX = Math.max(x0, x1);
+        int fromY = Math.min(y0, y1), toY = Math.max(y0, y1);
+        // Сначала снимок: тайлы и уровни пирамиды перерисовываются уже из новых строк
+        TerrainSnapshot snapshot = terrainSnapshot;
+        if (snapshot != null && !snapshot.update(fromY, toY)) {
+            terrainSnapshot = null;
         }
+        staticTileCache.invalidateRegion(new Rectangle(fromX * TILE_SIZE, fromY * TILE_SIZE,
+                (toX - fromX + 1) * TILE_SIZE, (toY - fromY + 1) * TILE_SIZE));
+        staticMipPyramid.invalidateRegion(fromX, fromY, toX + 1, toY + 1);
+        waterMask.invalidateRegion(fromX, fromY, toX, toY);
+        // Подложки станций берут цвет местности
+        layerCompositor.invalidate(stationBaseLayer);
+    }
 
-        int validateResult = staticWorldCache.validate(getGraphicsConfiguration());
-        boolean needsRedraw = (validateResult != VolatileImage.IMAGE_OK) || !staticCacheValid;
-
-        if (validateResult == VolatileImage.IMAGE_INCOMPATIBLE) {
-            staticWorldCache.flush();
-            staticWorldCache = createCompatibleVolatileImage(width * TILE_SIZE, height * TILE_SIZE);
-            needsRedraw = true;
+    /**
+     * Draws the static terrain under the clip without caching it.
+     * Costs one decoded pixel per visible world tile, whatever the zoom.
+     * @param g Graphics in world units
+     * @param clip Visible area in world units, null for the whole world
+     */
+    private void drawVisibleStatic(Graphics2D g, Rectangle clip) {
+        int x0 = 0, y0 = 0, x1 = getWorld().getWidth(), y1 = getWorld().getHeight();
+        if (clip != null) {
+            x0 = Math.max(x0, Math.floorDiv(clip.x, TILE_SIZE));
+            y0 = Math.max(y0, Math.floorDiv(clip.y, TILE_SIZE));
+            x1 = Math.min(x1, Math.floorDiv(clip.x + clip.width + TILE_SIZE - 1, TILE_SIZE));
+            y1 = Math.min(y1, Math.floorDiv(clip.y + clip.height + TILE_SIZE - 1, TILE_SIZE));
         }
-
-        if (needsRedraw) {
-            Graphics2D g = staticWorldCache.createGraphics();
-            try {
-                clearImage(g, staticWorldCache);
-                g.scale(CACHE_SCALE, CACHE_SCALE);
-                drawStaticWorld(g);
-            } finally {
-                g.dispose();
-            }
-
-            updateCompressedStaticCache();
+        Graphics2D sg = (Graphics2D) g.create();
+        try {
+            sg.scale(CACHE_SCALE, CACHE_SCALE);
+            drawStaticRegion(sg, x0, y0, x1, y1);
+        } finally {
+            sg.dispose();
         }
-
-        staticCacheValid = true;
-        worldChanged = false;
     }
 
-
-    private boolean needToRecreateCache(VolatileImage cache, int width, int height) {
-        return cache == null ||
-                cache.getWidth() != width * TILE_SIZE ||
-                cache.getHeight() != height * TILE_SIZE;
-    }
-
-    private void clearImage(Graphics2D g, VolatileImage image) {
-        g.setComposite(AlphaComposite.Clear);
-        g.fillRect(0, 0, image.getWidth(), image.getHeight());
-        g.setComposite(AlphaComposite.SrcOver);
+    /**
+     * Rasterizes a part of the static world into a cache tile.
+     * Cache pixels match world units: a world tile is {@link #TILE_SIZE} pixels,
+     * drawn at {@link #WORLD_TILE_SIZE} under the {@link #CACHE_SCALE} scale.
+     */
+    private void rasterizeStaticTile(Graphics2D g, int pixelX, int pixelY, int width, int height) {
+        int x0 = pixelX / TILE_SIZE;
+        int y0 = pixelY / TILE_SIZE;
+        int x1 = Math.min(getWorld().getWidth(), (pixelX + width + TILE_SIZE - 1) / TILE_SIZE);
+        int y1 = Math.min(getWorld().getHeight(), (pixelY + height + TILE_SIZE - 1) / TILE_SIZE);
+        g.scale(CACHE_SCALE, CACHE_SCALE);
+        drawStaticRegion(g, x0, y0, x1, y1);
     }
 
     // Добавляем финализатор для очистки ресурсов
@@ -236,144 +237,210 @@ public class CachedWorldScreen extends WorldScreen {
         }
     }
     public void renderWorld(Graphics2D g) {
-        long frameStartTime = System.nanoTime();
-        int width = getWorld().getWidth();
-        int height = getWorld().getHeight();
-
-        if (compressedCacheValid && staticCacheValid && staticWorldCache == null) {
-            restoreFromCompressedCache();
-            if (staticWorldCache != null) {
-                System.out.println("[RENDER] Restored from compressed cache");
-            }
-        }
 
-        // Если всё ещё нет кэша — пересоздаём
-        if (!staticCacheValid || staticWorldCache == null) {
-            updateStaticWorldCache(width, height);
+        staticTileCache.setSize(getWorld().getWidth() * TILE_SIZE, getWorld().getHeight() * TILE_SIZE);
+        staticMipPyramid.setWorldSize(getWorld().getWidth(), getWorld().getHeight());
+        // Клип уже в мировых координатах - блитятся только пересекающиеся с ним тайлы
+        Rectangle clip = g.getClipBounds();
+        if (!staticMipPyramid.render(g, clip, zoom)
+                && (zoom < TILE_CACHE_MIN_ZOOM || !staticTileCache.render(g, clip))) {
+            // Пирамида еще не готова или кэшу не хватает тайлов: видимая часть прямо из снимка
+            drawVisibleStatic(g, clip);
         }
-        drawVolatileImage(g, staticWorldCache, 0, 0, () -> updateStaticWorldCache(width, height));
+
         // Инкрементальная сборка мусора
         incrementalGarbageCollection();
+    }
 
-        // Контроль FPS
-        controlFrameRate(frameStartTime);
+    /**
+     * Computes the rectangle of world tiles visible with the current zoom and offsets
+     * @return Visible tiles, not clamped to the world
+     */
+    public Rectangle getVisibleTileBounds() {
+        int x0 = (int) Math.floor(-offsetX / (double) TILE_SIZE);
+        int y0 = (int) Math.floor(-offsetY / (double) TILE_SIZE);
+        int x1 = (int) Math.floor((getWidth() / zoom - offsetX) / TILE_SIZE);
+        int y1 = (int) Math.floor((getHeight() / zoom - offsetY) / TILE_SIZE);
+        return new Rectangle(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
     }
 
+    /**
+     * Collects the objects intersecting the viewport for the draw passes of this frame
+     */
+    protected void cullToViewport() {
+        visibleTiles = getVisibleTileBounds();
+        WorldViewIndex index = getWorld().getViewIndex();
+        int x0 = visibleTiles.x;
+        int y0 = visibleTiles.y;
+        int x1 = visibleTiles.x + visibleTiles.width - 1;
+        int y1 = visibleTiles.y + visibleTiles.height - 1;
+
+        visibleRivers.clear();
+        visibleTunnels.clear();
+        visibleStations.clear();
+        visibleLabels.clear();
+        index.getRivers().query(x0, y0, x1, y1, visibleRivers);
+        index.getTunnels().query(x0, y0, x1, y1, visibleTunnels);
+        index.getStations().query(x0, y0, x1, y1, visibleStations);
+        // Ширина текста метки известна только при отрисовке - запрос расширяется
+        index.getLabels().query(x0 - LABEL_MARGIN_X, y0 - LABEL_MARGIN_Y,
+                x1 + LABEL_MARGIN_X, y1 + LABEL_MARGIN_Y, visibleLabels);
+        visibleStations.sort(STATION_ORDER);
+    }
 
-    protected void drawVolatileImage(Graphics2D g, VolatileImage image, int x, int y, Runnable redrawContent) {
-        if (image == null) return;
-
-        int maxAttempts = 3; // Защита от бесконечного цикла
-        int attempts = 0;
-
-        while (attempts < maxAttempts) {
-            int result = image.validate(getGraphicsConfiguration());
-
-            switch (result) {
-                case VolatileImage.IMAGE_OK:
-                    g.drawImage(image, x, y, null);
-                    return; // Успешно нарисовали
-
-                case VolatileImage.IMAGE_RESTORED:
-                    if (redrawContent != null) {
-                        redrawContent.run();
-                    }
-                    g.drawImage(image, x, y, null);
-                    return;
-
-                case VolatileImage.IMAGE_INCOMPATIBLE:
-                    // Пересоздаём изображение
-                    if (staticWorldCache != null) {
-                        staticWorldCache.flush();
-                    }
-                    staticWorldCache = createCompatibleVolatileImage(
-                            getWorld().getWidth() * TILE_SIZE,
-                            getWorld().getHeight() * TILE_SIZE
-                    );
-                    if (redrawContent != null) {
-                        redrawContent.run();
-                    }
-                    g.drawImage(staticWorldCache, x, y, null);
-                    return;
-            }
+    /**
+     * Gets drawn/culled counts of the last frame for the debug overlay
+     * @return Lines of text
+     */
+    public String[] getCullingStats() {
+        World world = getWorld();
+        return new String[]{
+                String.format("Rivers: %d drawn / %d culled", visibleRivers.size(),
+                        world.getRivers().size() - visibleRivers.size()),
+                String.format("Tunnels: %d drawn / %d culled", visibleTunnels.size(),
+                        world.getTunnels().size() - visibleTunnels.size()),
+                String.format("Stations: %d drawn / %d culled", visibleStations.size(),
+                        world.getStations().size() - visibleStations.size()),
+                String.format("Labels: %d drawn / %d culled", visibleLabels.size(),
+                        world.getLabels().size() - visibleLabels.size()),
+                animatedWater
+                        ? String.format("Water chunks: %d drawn / %d rasterized", waterMask.getChunksDrawn(),
+                                waterMask.getChunksRasterized())
+                        : "Water chunks: static"
+        };
+    }
 
-            attempts++;
-            try {
-                Thread.sleep(10); // Небольшая задержка
-            } catch (InterruptedException ignored) {}
-        }
+// DRAW SECTIONS
+    /**
+     * Draws rivers, tunnels, stations and labels from the cached layers, redrawing the layers
+     * whose objects were edited since the last frame
+     * @param g Screen graphics, without the world transform
+     */
+    protected void drawDynamicWorld(Graphics2D g) {
+        syncLayerRevisions();
+        layerCompositor.setView(getWidth(), getHeight(), zoom, offsetX, offsetY);
+        layerCompositor.render(g);
+        frameProfiler.mark(FrameProfiler.Phase.COMPOSITE);
+    }
 
-        // Если не удалось нарисовать после нескольких попыток
-        System.err.println("Failed to draw volatile image after " + maxAttempts + " attempts");
+    /**
+     * Invalidates the layers whose world edit counters changed since they were drawn
+     */
+    private void syncLayerRevisions() {
+        World world = getWorld();
+        if (world != drawnWorld) {
+            drawnWorld = world;
+            layerCompositor.invalidateAll();
+        }
+        for (WorldLayer layer : WorldLayer.values()) {
+            int revision = world.getLayerRevision(layer);
+            if (revision == drawnRevisions[layer.ordinal()]) continue;
+            drawnRevisions[layer.ordinal()] = revision;
+            switch (layer) {
+                case RIVERS -> layerCompositor.invalidate(riverLayer);
+                case TUNNELS -> layerCompositor.invalidate(tunnelLayer);
+                case STATIONS -> {
+                    layerCompositor.invalidate(stationBaseLayer);
+                    layerCompositor.invalidate(stationLayer);
+                }
+                case LABELS -> layerCompositor.invalidate(labelLayer);
+            }
+        }
     }
-// DRAW SECTIONS
-protected void drawDynamicWorld(Graphics2D g) {
-    AffineTransform originalTransform = g.getTransform();
-    drawRivers(g);
-    drawTunnels(g);
-    drawStations(g);
-    g.setTransform(originalTransform);
-}
 
     protected void drawRivers(Graphics2D g) {
-        for (River river : getWorld().getRivers()) {
-            river.draw(g, 0, 0, 1);
+        for (River river : visibleRivers) {
+            if (river.getCalculatedPath().size() >= 2) {
+                RiverRender.drawRiver(river, g, 0, 0, 1);
+            }
         }
     }
 
     protected void drawTunnels(Graphics2D g) {
-        for (Tunnel tunnel : getWorld().getTunnels()) {
-            tunnel.draw(g, 0, 0, 1);
+        for (Tunnel tunnel : visibleTunnels) {
+            TunnelRender.drawTunnel(tunnel, g, 0, 0, 1);
         }
     }
 
-    protected void drawStations(Graphics2D g) {
+    protected void drawStationBases(Graphics2D g) {
         boolean roundStations = getWorld().isRoundStationsEnabled();
-
-        // Draw station bases
-        for (Station station : getWorld().getStations()) {
+        for (Station station : visibleStations) {
             if (roundStations) {
                 StationRender.drawWorldColorRing(station, g, 0, 0, 1);
-           //     StationRender.isRoundRingRendered = true;
-
             } else {
                 StationRender.drawWorldColorSquare(station, g, 0, 0, 1);
             }
             StationRender.drawRoundTransfer(station, g, 0, 0, 1);
         }
+    }
 
-        // Draw station details in sorted order
-        List<Station> sortedStations = getAllStationsSorted();
-        for (Station station : sortedStations) {
+    protected void drawStationBodies(Graphics2D g) {
+        boolean roundStations = getWorld().isRoundStationsEnabled();
+        // Draw station details in sorted order (visibleStations is sorted by cullToViewport)
+        for (Station station : visibleStations) {
             if (roundStations) {
                 StationRender.drawRoundStation(station, g, 0, 0, 1);
-
             } else {
                 StationRender.drawSquareStation(station, g, 0, 0, 1);
             }
         }
     }
 
+    /**
+     * Draws the labels except the selected one, which changes with the selection and goes to the overlay
+     */
     protected void drawLabels(Graphics2D g) {
-        for (StationLabel stationLabel : getWorld().getLabels()) {
-            stationLabel.draw(g, 0, 0, 1);
-        }
+        LabelRender.drawLabels(visibleLabels, g, 0, 0, 1, true);
     }
-    protected void drawAnimatedWater(Graphics2D g) {
-        int tileSize = 32; // или твоя константа размера
 
-        for (int y = 0; y < getWorld().getHeight(); y++) {
-            for (int x = 0; x < getWorld().getWidth(); x++) {
-                WorldTile tile = getWorld().getWorldTile(x, y);
-                if (tile != null && tile.isWater()) {
-                    int drawX = x * tileSize;
-                    int drawY = y * tileSize;
+    /**
+     * Draws what changes without world edits over the cached layers: selection highlights and
+     * debug markers of the visible objects
+     * @param g Graphics with the world transform
+     */
+    protected void drawOverlay(Graphics2D g) {
+        Selectable selected = SelectionManager.getInstance().getSelected();
+        if (selected instanceof River river && visibleRivers.contains(river)) {
+            RiverRender.drawRiverSelection(river, g, 0, 0, 1);
+        } else if (selected instanceof StationLabel stationLabel && visibleLabels.contains(stationLabel)) {
+            LabelRender.drawLabel(stationLabel, g, 0, 0, 1);
+        }
+        if (!debugMode) return;
 
-                    g.setColor(tile.getAnimatedWaterColor());
-                    g.fillRect(drawX, drawY, tileSize, tileSize);
-                }
+        for (River river : visibleRivers) {
+            for (RiverPoint point : river.getPoints()) {
+                point.draw(g, 0, 0, 1);
             }
         }
+        for (Tunnel tunnel : visibleTunnels) {
+            if (tunnel.isSelected()) {
+                TunnelRender.drawTunnelSelection(tunnel, g, 0, 0, 1);
+            }
+            if (tunnel.getPathPoint() != null) {
+                TunnelRender.drawControlPoint(tunnel, g, 0, 0, 1);
+            }
+        }
+    }
+
+    /**
+     * Draws the water shimmer over the visible water chunks if animated water is enabled.
+     * Water is part of the static cache, so with the animation off this pass costs nothing.
+     * @param g Graphics with the world transform
+     */
+    protected void drawAnimatedWater(Graphics2D g) {
+        if (!animatedWater) return;
+        waterMask.setTerrain(getWorld().getTerrain());
+        double seconds = (System.nanoTime() - animationStartTime) / 1_000_000_000.0;
+        waterMask.drawAnimated(g, visibleTiles, TILE_SIZE, seconds);
+    }
+
+    public boolean isAnimatedWater() {
+        return animatedWater;
+    }
+
+    public void setAnimatedWater(boolean animatedWater) {
+        this.animatedWater = animatedWater;
+        repaint();
     }
 
     protected List<Station> getAllStationsSorted() {
@@ -386,19 +453,55 @@ protected void drawDynamicWorld(Graphics2D g) {
     }
 
     public void drawStaticWorld(Graphics2D g) {
-        AffineTransform originalTransform = g.getTransform();
+        drawStaticRegion(g, 0, 0, getWorld().getWidth(), getWorld().getHeight());
+    }
 
-        for (int y = 0; y < getWorld().getHeight(); y++) {
-            for (int x = 0; x < getWorld().getWidth(); x++) {
-                WorldTile tile = getWorld().getWorldTile(x, y);
-                tile.draw(g, 0, 0, 1);
-            }
+    /**
+     * Draws the static terrain of a rectangle of world tiles.
+     * The terrain is decoded one pixel per tile from the {@link TerrainSnapshot} (or rasterized by
+     * {@link TerrainRasterizer} if it has too many colours for a snapshot) and drawn with a
+     * single nearest-neighbour blit, so every tile stays a sharp flat square at any scale.
+     * @param g Graphics scaled so that a world tile is {@link WorldTile#TILE_SIZE} pixels
+     * @param x0 First column, inclusive
+     * @param y0 First row, inclusive
+     * @param x1 Last column, exclusive
+     * @param y1 Last row, exclusive
+     */
+    protected void drawStaticRegion(Graphics2D g, int x0, int y0, int x1, int y1) {
+        if (x1 <= x0 || y1 <= y0) return;
+        TerrainSnapshot snapshot = getTerrainSnapshot();
+        BufferedImage terrain = snapshot != null
+                ? snapshot.decodeImage(x0, y0, x1, y1)
+                : TerrainRasterizer.rasterizeImage(getWorld().getTerrain(), 1, x0, y0, x1, y1);
+
+        Object oldInterpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(terrain, x0 * WorldTile.TILE_SIZE, y0 * WorldTile.TILE_SIZE,
+                (x1 - x0) * WorldTile.TILE_SIZE, (y1 - y0) * WorldTile.TILE_SIZE, null);
+        if (oldInterpolation != null) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldInterpolation);
         }
-
-        g.setTransform(originalTransform);
     }
 
 
+    /**
+     * Gets the terrain snapshot, encoding it on first use and after a world or base colour change
+     * @return Snapshot or null if the terrain does not fit a palette
+     */
+    public TerrainSnapshot getTerrainSnapshot() {
+        TerrainLayer terrain = getWorld().getTerrain();
+        TerrainSnapshot snapshot = terrainSnapshot;
+        if (snapshot != null && snapshot.matches(terrain)) return snapshot;
+        synchronized (snapshotLock) {
+            snapshot = terrainSnapshot;
+            if (snapshot == null || !snapshot.matches(terrain)) {
+                snapshot = TerrainSnapshot.create(terrain);
+                terrainSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
     private Color getPaymentZoneColor(float ratio) {
         // Градиент: синий (0.0) -> фиолетовый (0.5) -> красный (1.0)
         if (ratio < 0.5f) {
@@ -0,0 +1,182 @@
+package metroline.screens.worldscreens;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the update/paint loop of a world screen.
+ * <p>
+ * With an FPS cap of 0 the loop is on demand: it sleeps until {@link #requestFrame()} is
+ * called and keeps running only while the update reports an animation (for example panning
+ * with held keys). Input and world edits repaint through Swing as before, so an idle map costs
+ * nothing. With a positive cap the screen is repainted continuously at that rate.
+ * <p>
+ * Frames are painted synchronously with {@code paintImmediately}, which goes through Swing's
+ * per-window back buffer, and only one frame is in flight at a time, so a slow frame delays
+ * the next one instead of queueing repaints. Deadlines advance by a fixed period, aligned to
+ * the display refresh rate in on-demand mode, and the pipeline is flushed after each frame.
+ * @author Tesmio
+ */
+public class FrameScheduler {
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    private static final double MAX_DELTA_SECONDS = 0.1;
+
+    /**
+     * Per-frame logic run on the scheduler thread
+     */
+    public interface FrameTask {
+        /**
+         * @param deltaTime Seconds since the previous update
+         * @return True while something animates and more frames are needed
+         */
+        boolean update(double deltaTime);
+    }
+
+    private final JComponent target;
+    private final FrameTask task;
+    private final Object lock = new Object();
+    private final AtomicBoolean framePending = new AtomicBoolean();
+
+    private boolean frameRequested;
+    private volatile boolean running;
+    private volatile int fpsCap;
+    private Thread thread;
+
+    public FrameScheduler(JComponent target, FrameTask task, int fpsCap) {
+        this.target = target;
+        this.task = task;
+        this.fpsCap = Math.max(0, fpsCap);
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, "FrameScheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+
+    /**
+     * Wakes the loop for at least one update and paint
+     */
+    public void requestFrame() {
+        synchronized (lock) {
+            frameRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Sets the frame cap
+     * @param fpsCap Frames per second, 0 for on-demand rendering
+     */
+    public void setFpsCap(int fpsCap) {
+        this.fpsCap = Math.max(0, fpsCap);
+        requestFrame();
+    }
+
+    public int getFpsCap() {
+        return fpsCap;
+    }
+
+    public boolean isOnDemand() {
+        return fpsCap == 0;
+    }
+
+    /**
+     * Gets the frame rate the loop is paced at
+     * @return Cap in continuous mode, display refresh rate in on-demand mode
+     */
+    public int getTargetFps() {
+        return fpsCap > 0 ? fpsCap : getRefreshRate();
+    }
+
+    private int getRefreshRate() {
+        GraphicsConfiguration gc = target.getGraphicsConfiguration();
+        if (gc == null || GraphicsEnvironment.isHeadless()) return DEFAULT_REFRESH_RATE;
+        int rate = gc.getDevice().getDisplayMode().getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : rate;
+    }
+
+    private void run() {
+        long lastUpdate = System.nanoTime();
+        long deadline = lastUpdate;
+        boolean animating = false;
+
+        while (running) {
+            if (isOnDemand() && !animating) {
+                if (!awaitRequest()) return;
+                // После простоя отсчет начинается заново, иначе первый шаг анимации будет огромным
+                lastUpdate = System.nanoTime();
+                deadline = lastUpdate;
+            } else {
+                synchronized (lock) {
+                    frameRequested = false;
+                }
+            }
+
+            long now = System.nanoTime();
+            double deltaTime = Math.min(MAX_DELTA_SECONDS, (now - lastUpdate) / 1_000_000_000.0);
+            lastUpdate = now;
+            try {
+                animating = task.update(deltaTime);
+            } catch (RuntimeException e) {
+                System.err.println("[FrameScheduler] Frame update failed: " + e.getMessage());
+                animating = false;
+            }
+
+            if (framePending.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(this::paintFrame);
+            }
+
+            long period = 1_000_000_000L / getTargetFps();
+            deadline += period;
+            long sleep = deadline - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+            } else if (-sleep > period) {
+                // Отстали больше чем на кадр - не догоняем, а начинаем отсчет заново
+                deadline = System.nanoTime();
+            }
+        }
+    }
+
+    private boolean awaitRequest() {
+        synchronized (lock) {
+            while (!frameRequested && running) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            frameRequested = false;
+        }
+        return running;
+    }
+
+    private void paintFrame() {
+        try {
+            if (target.isShowing()) {
+                target.paintImmediately(0, 0, target.getWidth(), target.getHeight());
+                Toolkit.getDefaultToolkit().sync();
+            }
+        } finally {
+            framePending.set(false);
+        }
+    }
+}
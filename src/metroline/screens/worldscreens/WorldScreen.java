@@ -216,21 +216,6 @@ public class WorldScreen extends GameScreen {
         }, "GC-Thread").start();
     }
 
-    public void controlFrameRate(long frameStartTime) {
-        long frameTimeNs = System.nanoTime() - frameStartTime;
-        long frameTimeMs = frameTimeNs / 1000000;
-        long targetFrameTimeMs = 1000 / 880; // ~7ms для 144 FPS
-
-        if (frameTimeMs < targetFrameTimeMs) {
-            try {
-                // Небольшая пауза для точного контроля FPS
-                Thread.sleep(targetFrameTimeMs - frameTimeMs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
-    }
-
     private void logMemoryUsage() {
         long used = runtime.totalMemory() - runtime.freeMemory();
         long max = runtime.maxMemory();
@@ -15,7 +15,6 @@ import metroline.objects.gameobjects.*;
 
 import metroline.screens.panel.StationTypePopupMenu;
 import metroline.screens.panel.TunnelTypePopupMenu;
-import metroline.screens.render.StationPositionCache;
 import metroline.util.MetroLogger;
 import metroline.util.localizate.LngUtil;
 import metroline.util.ui.MetrolineButton;
@@ -153,10 +152,9 @@ public class GameClickController  {
         GameWorld gameWorld = (GameWorld) GameWorldScreen.getInstance().getWorld();
 
         // Check if cell has any content
-        GameTile tile = gameWorld.getGameTile(x, y);
-        if (tile == null) return;
+        if (x < 0 || x >= gameWorld.getWidth() || y < 0 || y >= gameWorld.getHeight()) return;
 
-        GameObject content = tile.getContent();
+        GameObject content = gameWorld.getTileContent(x, y);
 
         // If cell is EMPTY - place new RiverPoint (like Shift+LMB for stations)
         if (content == null) {
@@ -317,13 +315,11 @@ public class GameClickController  {
     // Вспомогательный метод для подсчета активных туннелей станции
     private int countActiveTunnels(Station station, GameWorld world) {
         int count = 0;
-        for (Tunnel tunnel : world.getTunnels()) {
+        for (Tunnel tunnel : world.getTunnelsForStation(station)) {
             if (tunnel.getType() == TunnelType.ACTIVE ||
                     tunnel.getType() == TunnelType.BUILDING ||
                     tunnel.getType() == TunnelType.PLANNED) {
-                if (tunnel.getStart() == station || tunnel.getEnd() == station) {
-                    count++;
-                }
+                count++;
             }
         }
         return count;
@@ -422,7 +418,6 @@ public class GameClickController  {
             handleLabelDrag((StationLabel) selected, x, y);
         } else if (selected instanceof Station) {
             handleStationDrag((Station)selected, x, y);
-            StationPositionCache.invalidateStationPositions((Station)selected);
         } else if (selected instanceof Tunnel) {
             handleTunnelDrag((Tunnel)selected, x, y);
 
@@ -441,8 +436,8 @@ public class GameClickController  {
         int newX = x - dragOffset.x;
         int newY = y - dragOffset.y;
 
+        // Реки - динамический слой, статика мира от точки не зависит
         if (performMove(riverPoint, newX, newY)) {
-            screen.invalidateCache();
             screen.repaint();
         }
     }
@@ -452,24 +447,8 @@ public class GameClickController  {
     private void handleExistingStation(Station station) {
         GameWorld gameWorld = (GameWorld) GameWorldScreen.getInstance().getWorld();
 
-        List<Tunnel> tunnelsToRemove = new ArrayList<>();
-        for (Tunnel tunnel : gameWorld.getTunnels()) {
-            if (tunnel.getStart() == station || tunnel.getEnd() == station) {
-                tunnelsToRemove.add(tunnel);
-            }
-        }
-        for (Tunnel tunnel : tunnelsToRemove) {
-            gameWorld.removeTunnel(tunnel);
-        }
-
-        // Remove station label if exists
-        StationLabel label = gameWorld.getLabelForStation(station);
-        if (label != null) {
-            gameWorld.removeLabel(label);
-        }
-
-        // Remove station itself
-        gameWorld.removeStation(station);
+        // Станция, ее туннели и метка удаляются одним пакетом
+        gameWorld.batch(batch -> batch.removeStation(station));
 
         // Deselect if was selected
         SelectionManager.getInstance().deselect();
@@ -535,10 +514,8 @@ public class GameClickController  {
         if (performMove(station, newX, newY)) {
             // Если станция переместилась, нужно пересчитать туннели
             GameWorld world = (GameWorld) screen.getWorld();
-            for (Tunnel t : world.getTunnels()) {
-                if (t.getStart() == station || t.getEnd() == station) {
-                    t.calculatePath();
-                }
+            for (Tunnel t : world.getTunnelsForStation(station)) {
+                t.calculatePath();
             }
 
             // АВТОМАТИЧЕСКОЕ ПЕРЕМЕЩЕНИЕ МЕТКИ
@@ -686,11 +663,8 @@ public class GameClickController  {
             return false;
         }
 
-        // 2. Получаем тайл
-        GameTile tile = world.getGameTile(targetX, targetY);
-        if (tile == null) return false;
-
-        GameObject content = tile.getContent();
+        // 2. Содержимое клетки, без создания тайла
+        GameObject content = world.getTileContent(targetX, targetY);
 
         // 3. Клетка свободна, если там пусто ИЛИ там лежит сам перемещаемый объект
         if (content == null) {
@@ -727,7 +701,9 @@ public class GameClickController  {
         }
 
         // 1. Очищаем старую клетку
-        world.getGameTile(obj.getX(), obj.getY()).setContent(null);
+        int oldX = obj.getX();
+        int oldY = obj.getY();
+        world.clearGameTile(oldX, oldY);
 
         // 2. Обновляем координаты объекта
         // (предполагается наличие метода setPosition или доступ к полям x,y)
@@ -740,7 +716,14 @@ public class GameClickController  {
         }
 
         // 3. Занимаем новую клетку
-        world.getGameTile(newX, newY).setContent(obj);
+        world.getOrCreateGameTile(newX, newY).setContent(obj);
+        world.onObjectMoved(obj);
+
+        // Станция сменила соседей - пересчитываем типы на старом и новом месте
+        if (obj instanceof Station) {
+            world.markStationAreaDirty(oldX, oldY);
+            world.markStationAreaDirty(newX, newY);
+        }
 
         return true;
     }
@@ -748,14 +731,11 @@ public class GameClickController  {
      * Попытка выбрать туннель
      */
     private boolean trySelectTunnel(int x, int y) {
+        // Индекс туннелей уже гарантирует, что путь проходит через клетку
         Tunnel tunnel = GameWorldScreen.getInstance().getWorld().getTunnelAt(x, y);
         if (tunnel != null) {
-            for (PathPoint p : tunnel.getPath()) {
-                if (p.getX() == x && p.getY() == y) {
-                    selectObject(tunnel, x, y);
-                    return true;
-                }
-            }
+            selectObject(tunnel, x, y);
+            return true;
         }
         return false;
     }
@@ -1018,7 +998,7 @@ public class GameClickController  {
             }
         }
 
-        screen.invalidateCache();
+        screen.invalidateRegion(centerX - 1, centerY - 1, centerX + 1, centerY + 1);
         screen.repaint();
     }
 
@@ -1040,7 +1020,7 @@ public class GameClickController  {
 
             // Shift = remove water (false), no shift = add water (true)
             tile.setWater(!isShiftPressed);
-            screen.invalidateCache(); // Force re-render
+            screen.invalidateRegion(x, y, x, y);
             screen.repaint();
         }
     }
@@ -1057,7 +1037,7 @@ public class GameClickController  {
         GameWorld world = (GameWorld) screen.getWorld();
 
         // Check if cell is free
-        if (world.getGameTile(x, y).getContent() != null) {
+        if (world.getTileContent(x, y) != null) {
             MetroLogger.logInfo(" Cell occupied at: " + x + ", " + y);
             return;
         }
@@ -1095,7 +1075,7 @@ public class GameClickController  {
 
         // Optionally add final point if cell is free
         if (x >= 0 && x < world.getWidth() && y >= 0 && y < world.getHeight()) {
-            if (world.getGameTile(x, y).getContent() == null) {
+            if (world.getTileContent(x, y) == null) {
                 RiverPoint point = new RiverPoint(world, x, y, screen.currentRiver);
                 world.addRiverPoint(point);
                 screen.currentRiver.addPoint(point);
@@ -2,16 +2,19 @@ package metroline.screens.worldscreens.normal;
 
 import metroline.MainFrame;
 import metroline.core.world.GameWorld;
-import metroline.core.world.tiles.GameTile;
+import metroline.core.world.tiles.GameTileGrid;
 import metroline.input.KeyboardController;
 import metroline.input.selection.Selectable;
 import metroline.input.selection.SelectionManager;
 import metroline.objects.gameobjects.StationLabel;
 import metroline.objects.gameobjects.*;
 import metroline.screens.panel.LinesLegendWindow;
-import metroline.screens.render.StationPositionCache;
 import metroline.screens.render.StationRender;
+import metroline.screens.render.TerrainSnapshot;
 import metroline.screens.worldscreens.CachedWorldScreen;
+import metroline.screens.worldscreens.FrameScheduler;
+import metroline.util.debug.FrameProfiler;
+import metroline.util.serialize.GlobalSettings;
 
 
 
@@ -21,25 +24,22 @@ import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.geom.AffineTransform;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 import java.util.List;
-import java.util.TimerTask;
 
 
 //TODO доделать плавный перемещатор с учетом зума (ща без него)
 public class GameWorldScreen extends CachedWorldScreen {
     private static final int FPS_UPDATE_INTERVAL = 1000;
-    private static final int TARGET_FPS = 500;
-    private static final int RENDER_DELAY_MS = 1000 / TARGET_FPS; // ~7ms для 144 FPS
 
     public static GameWorldScreen INSTANCE;
     public GameClickController worldClickController;
 
     //    public final List<InfoWindow> infoWindows = new ArrayList<>();
-    private java.util.Timer gameTimer;
-    private TimerTask renderTask;
+    private FrameScheduler frameScheduler;
 
     // Performance tracking
     private int fps;
@@ -50,7 +50,6 @@ public class GameWorldScreen extends CachedWorldScreen {
     private int worldUpdates;
     private long lastWorldUpdateTime;
 
-    private long lastUpdateTime;
     private double deltaTime;
 
 
@@ -64,7 +63,6 @@ public class GameWorldScreen extends CachedWorldScreen {
         setupGameTimer();
         lastFpsTime = System.currentTimeMillis();
         lastWorldUpdateTime = lastFpsTime;
-        lastUpdateTime = System.nanoTime();
 
         parent.updateLanguage();
     }
@@ -95,65 +93,60 @@ public class GameWorldScreen extends CachedWorldScreen {
     private void setupGameTimer() {
         stopGameTimer();
 
-        gameTimer = new java.util.Timer("GameLoopTimer", true);
-        renderTask = new TimerTask() {
-            @Override
-            public void run() {
-                synchronized (GameWorldScreen.this) {
-                    long currentTime = System.nanoTime();
-                    deltaTime = (currentTime - lastUpdateTime) / 1_000_000_000.0; // в секундах
-                    lastUpdateTime = currentTime;
-
-                    // Обновление игровой логики
-                    updateGameLogic(deltaTime);
-
-                    // Отрисовка в EDT
-                    SwingUtilities.invokeLater(() -> {
-                        repaint();
-                    });
-                }
-            }
-        };
-
-        // Запускаем с фиксированной частотой
-        gameTimer.scheduleAtFixedRate(renderTask, 0, RENDER_DELAY_MS);
+        frameScheduler = new FrameScheduler(this, this::updateGameLogic, GlobalSettings.getFpsCap());
+        frameScheduler.start();
     }
-    private void updateGameLogic(double deltaTime) {
 
-        List<Station> stationsToCheck;
-        List<Tunnel> tunnelsToCheck;
-
-        synchronized (this) {
-            stationsToCheck = new ArrayList<>(((GameWorld)getWorld()).getStations());
-            tunnelsToCheck = new ArrayList<>(((GameWorld)getWorld()).getTunnels());
-        }
-
-
-        updatePanByArrowKeys();
-
-        StationPositionCache.cleanupCache();
+    /**
+     * Runs one step of the game logic, called by the frame scheduler
+     * @return True while the view is animating and needs further frames
+     */
+    private synchronized boolean updateGameLogic(double deltaTime) {
+        this.deltaTime = deltaTime;
+        boolean panning = updatePanByArrowKeys();
         worldUpdates++;
+        // Блики воды требуют кадров и в режиме по запросу
+        return panning || animatedWater;
     }
 
     public void stopGameTimer() {
-        if (renderTask != null) {
-            renderTask.cancel();
+        if (frameScheduler != null) {
+            frameScheduler.stop();
+            frameScheduler = null;
         }
-        if (gameTimer != null) {
-            gameTimer.cancel();
-            gameTimer.purge();
+    }
+
+    /**
+     * Wakes the frame loop, for input that starts an animation
+     */
+    public void requestFrame() {
+        FrameScheduler scheduler = frameScheduler;
+        if (scheduler != null) {
+            scheduler.requestFrame();
         }
     }
+
+    /**
+     * Sets the frame cap
+     * @param fpsCap Frames per second, 0 to repaint only on demand
+     */
+    public void setFpsCap(int fpsCap) {
+        FrameScheduler scheduler = frameScheduler;
+        if (scheduler != null) {
+            scheduler.setFpsCap(fpsCap);
+        }
+    }
+
     /**
      * Обновляет панорамирование на основе зажатых клавиш-стрелок.
      * Вызывать каждый кадр в игровом цикле.
      */
-    public void updatePanByArrowKeys() {
-        if (!(this instanceof GameWorldScreen)) return;
+    public boolean updatePanByArrowKeys() {
+        if (!(this instanceof GameWorldScreen)) return false;
 
         KeyboardController kb = KeyboardController.getInstance();
-        if (kb == null) return;
-        kb.updatePanArroyKeys(this);
+        if (kb == null) return false;
+        return kb.updatePanArroyKeys(this);
     }
 
 
@@ -170,22 +163,35 @@ public class GameWorldScreen extends CachedWorldScreen {
     protected void paintComponent(Graphics gr) {
 
         long renderStartTime = System.nanoTime();
+        frameProfiler.beginFrame();
         super.paintComponent(gr);
         Graphics2D g = (Graphics2D)gr;
 
         updatePerformanceCounters();
+        // Пакетный пересчет типов станций, помеченных правками с прошлого кадра.
+        // Кадр уже рисуется - repaint() отсюда запланировал бы лишний кадр
+        getWorld().flushDirtyStationsInPaint();
 
         AffineTransform oldTransform = g.getTransform();
         g.scale(zoom, zoom);
         g.translate(offsetX, offsetY);
 
-
+        cullToViewport();
+        frameProfiler.mark(FrameProfiler.Phase.PREPARE);
         renderWorld(g);
+        frameProfiler.mark(FrameProfiler.Phase.STATIC);
         drawAnimatedWater(g);
+        frameProfiler.mark(FrameProfiler.Phase.WATER);
 
+        // Слои кэшируются в экранных пикселях
+        AffineTransform worldTransform = g.getTransform();
+        g.setTransform(oldTransform);
         drawDynamicWorld(g);
+
+        g.setTransform(worldTransform);
         drawSelections(g);
-        drawLabels(g);
+        drawOverlay(g);
+        frameProfiler.mark(FrameProfiler.Phase.SELECTIONS);
 
         g.setTransform(oldTransform);
 
@@ -193,6 +199,8 @@ public class GameWorldScreen extends CachedWorldScreen {
         if (debugMode) {
             drawDebugInfo(g);
         }
+        frameProfiler.mark(FrameProfiler.Phase.UI);
+        frameProfiler.endFrame();
 
         updateRenderStats(renderStartTime);
 
@@ -202,13 +210,13 @@ public class GameWorldScreen extends CachedWorldScreen {
     private void drawSelections(Graphics2D g) {
 
         if(getWorld().isRoundStationsEnabled()) {
-            for (Station station : getWorld().getStations()) {
+            for (Station station : visibleStations) {
                 if (station.isSelected()) {
                     StationRender.drawRoundSelection(station, g, 0, 0, 1);
                 }
             }
         } else {
-            for (Station station : getWorld().getStations()) {
+            for (Station station : visibleStations) {
                 if (station.isSelected()) {
                     StationRender.drawSquareSelection(station, g, 0, 0, 1);
                 }
@@ -357,16 +365,8 @@ private void updateRenderStats(long renderStartTime) {
     renderCount++;
 }
     // Вспомогательный метод для подсчета объектов в сетке
-    private int countObjectsInGrid(GameTile[] grid) {
-        if (grid == null) return 0;
-
-        int count = 0;
-        for (int i = 0; i < grid.length; i++) {
-            if (grid[i] != null && grid[i].getContent() != null) {
-                count++;
-            }
-        }
-        return count;
+    private int countObjectsInGrid(GameTileGrid grid) {
+        return grid == null ? 0 : grid.countOccupied();
     }
 
 
@@ -387,7 +387,9 @@ private void drawPerformanceStats(Graphics2D g) {
 
     String[] stats = {
             "=== PERFORMANCE STATS ===",
-            String.format("FPS: %d (Target: %d)", fps, TARGET_FPS),
+            frameScheduler == null || frameScheduler.isOnDemand()
+                    ? String.format("FPS: %d (On demand)", fps)
+                    : String.format("FPS: %d (Target: %d)", fps, frameScheduler.getFpsCap()),
             String.format("Render: %d μs (avg)", avgRenderTime),
             String.format("World updates: %d/s", worldUpdates),
             String.format("Delta time: %.4f", deltaTime),
@@ -403,8 +405,23 @@ private void drawPerformanceStats(Graphics2D g) {
             String.format("Tunnels: %d", getWorld().getTunnels().size()),
             String.format("Labels: %d", getWorld().getLabels().size()),
 
-            String.format("Zoom: %.2f", zoom)
+            String.format("Zoom: %.2f", zoom),
+            "",
+            "=== CULLING ==="
     };
+    List<String> lines = new ArrayList<>(Arrays.asList(stats));
+    lines.addAll(Arrays.asList(getCullingStats()));
+    lines.add(String.format("Layers redrawn: %d/%d", layerCompositor.getLayersRedrawn(),
+            layerCompositor.getLayerCount()));
+    TerrainSnapshot snapshot = getTerrainSnapshot();
+    if (snapshot != null) {
+        lines.add(String.format("Terrain snapshot: %d KB (int image: %d KB)",
+                snapshot.getEncodedBytes() / 1024, snapshot.getRawBytes() / 1024));
+    }
+    lines.add("");
+    lines.add("=== FRAME PHASES ===");
+    lines.addAll(Arrays.asList(frameProfiler.getOverlayLines()));
+    stats = lines.toArray(new String[0]);
 
     int textHeight = metrics.getHeight() * stats.length;
     int textWidth = 0;
@@ -422,15 +439,30 @@ private void drawPerformanceStats(Graphics2D g) {
         yPos += metrics.getHeight();
     }
 
+    // Время кадров за окно профайлера
+    frameProfiler.drawFrameGraph(g, 10, textHeight + 40, Math.max(textWidth + 20, FrameProfiler.WINDOW), 60);
+
     g.setColor(oldColor);
     g.setFont(oldFont);
 }
 
+    /**
+     * Saves the frame times of the profiler window to a CSV file in the debug directory
+     */
+    public void dumpFrameProfile() {
+        frameProfiler.dumpCsv(new File("debug"));
+    }
+
     public void toggleDebugMode() {
         debugMode = !debugMode;
         repaint();
     }
 
+    public void toggleAnimatedWater() {
+        setAnimatedWater(!animatedWater);
+        requestFrame();
+    }
+
     @Override
     public void onActivate() {
         KeyboardController.getInstance().setCurrentWorldScreen(this);
@@ -5,6 +5,7 @@ import metroline.core.world.World;
 import metroline.objects.gameobjects.*;
 
 import metroline.screens.GameScreen;
+import metroline.screens.render.LabelRender;
 import metroline.screens.render.RiverRender;
 import metroline.screens.render.StationRender;
 
@@ -354,21 +355,15 @@ public class ImageUtil {
      */
     private static void drawLabels(Graphics2D g2d, World world,
             int x, int y, int width, int height) {
-        Rectangle2D area = new Rectangle2D.Float(x, y, width, height);
-
-        for (StationLabel label : world.getLabels()) {
-
-                // Для меток используем отдельный графический контекст
-                Graphics2D labelG = (Graphics2D) g2d.create();
-                try {
-                    labelG.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-                            RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
-                    label.draw(labelG, 0, 0, 1);
-                } finally {
-                    labelG.dispose();
-                }
-            }
-
+        // Один графический контекст на все метки
+        Graphics2D labelG = (Graphics2D) g2d.create();
+        try {
+            labelG.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                    RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
+            LabelRender.drawLabels(world.getLabels(), labelG, 0, 0, 1);
+        } finally {
+            labelG.dispose();
+        }
     }
 
     /**
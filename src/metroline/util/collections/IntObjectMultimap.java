@@ -0,0 +1,204 @@
+package metroline.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing multimap with primitive int keys.
+ * Each key owns a small array bucket of values; values are compared by identity.
+ * Keys must not be {@link Integer#MIN_VALUE} (used as the empty marker).
+ * @param <V> Value type
+ */
+public class IntObjectMultimap<V> {
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[][] buckets;
+    private int[] counts;
+    private int mask;
+    private int keyCount;
+
+    public IntObjectMultimap() {
+        this(16);
+    }
+
+    public IntObjectMultimap(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedKeys / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        buckets = new Object[capacity][];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a value under the key. Adding the same instance twice is a no-op.
+     * @param key Key
+     * @param value Value to add
+     */
+    public void put(int key, V value) {
+        if (keyCount + 1 > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            buckets[slot] = new Object[]{value};
+            counts[slot] = 1;
+            keyCount++;
+            return;
+        }
+        Object[] bucket = buckets[slot];
+        int count = counts[slot];
+        for (int i = 0; i < count; i++) {
+            if (bucket[i] == value) return;
+        }
+        if (count == bucket.length) {
+            bucket = Arrays.copyOf(bucket, count << 1);
+            buckets[slot] = bucket;
+        }
+        bucket[count] = value;
+        counts[slot] = count + 1;
+    }
+
+    /**
+     * Removes one value from the key's bucket
+     * @param key Key
+     * @param value Value instance to remove
+     * @return True if the value was present
+     */
+    public boolean remove(int key, V value) {
+        int slot = findSlot(key);
+        if (slot < 0) return false;
+        Object[] bucket = buckets[slot];
+        int count = counts[slot];
+        for (int i = 0; i < count; i++) {
+            if (bucket[i] == value) {
+                // Keep insertion order inside the bucket
+                System.arraycopy(bucket, i + 1, bucket, i, count - i - 1);
+                bucket[--count] = null;
+                counts[slot] = count;
+                if (count == 0) {
+                    removeSlot(slot);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Backward-shift deletion, keeps probe chains intact without tombstones
+     */
+    private void removeSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int ideal = hash(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                buckets[gap] = buckets[next];
+                counts[gap] = counts[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        buckets[gap] = null;
+        counts[gap] = 0;
+        keyCount--;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[][] oldBuckets = buckets;
+        int[] oldCounts = counts;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            buckets[slot] = oldBuckets[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    /**
+     * Gets the first value stored under the key
+     * @param key Key
+     * @return Value or null if the key is absent
+     */
+    @SuppressWarnings("unchecked")
+    public V getFirst(int key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) buckets[slot][0];
+    }
+
+    /**
+     * Gets the value at a position inside the key's bucket
+     * @param key Key
+     * @param i Position, 0 <= i < count(key)
+     * @return Value
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key, int i) {
+        int slot = findSlot(key);
+        if (slot < 0 || i >= counts[slot]) {
+            throw new IndexOutOfBoundsException("key " + key + ", index " + i);
+        }
+        return (V) buckets[slot][i];
+    }
+
+    /**
+     * Gets the number of values stored under the key
+     * @param key Key
+     * @return Bucket size, 0 if absent
+     */
+    public int count(int key) {
+        int slot = findSlot(key);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Gets the number of distinct keys
+     * @return Key count
+     */
+    public int keyCount() {
+        return keyCount;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(buckets, null);
+        Arrays.fill(counts, 0);
+        keyCount = 0;
+    }
+}
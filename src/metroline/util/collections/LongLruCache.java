@@ -0,0 +1,114 @@
+package metroline.util.collections;
+
+/**
+ * Bounded least-recently-used cache with primitive long keys.
+ * Lookups do not allocate: entries are nodes of an intrusive doubly linked list indexed by a
+ * {@link LongObjectMap}; a hit only relinks the node to the head, an insert over capacity
+ * drops the tail.
+ * @param <V> Value type
+ */
+public class LongLruCache<V> {
+    private static final class Node<V> {
+        final long key;
+        V value;
+        Node<V> prev;
+        Node<V> next;
+
+        Node(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final int capacity;
+    private final LongObjectMap<Node<V>> nodes;
+    private Node<V> head;
+    private Node<V> tail;
+
+    public LongLruCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.nodes = new LongObjectMap<>(capacity);
+    }
+
+    /**
+     * Gets the value and marks it as most recently used
+     * @param key Key
+     * @return Value or null if absent
+     */
+    public V get(long key) {
+        Node<V> node = nodes.get(key);
+        if (node == null) return null;
+        moveToHead(node);
+        return node.value;
+    }
+
+    /**
+     * Stores a value, evicting the least recently used entry when full
+     * @param key Key
+     * @param value Non-null value
+     */
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        Node<V> node = nodes.get(key);
+        if (node != null) {
+            node.value = value;
+            moveToHead(node);
+            return;
+        }
+        if (nodes.size() >= capacity) {
+            Node<V> eldest = tail;
+            unlink(eldest);
+            nodes.remove(eldest.key);
+        }
+        node = new Node<>(key, value);
+        nodes.put(key, node);
+        linkHead(node);
+    }
+
+    public V remove(long key) {
+        Node<V> node = nodes.remove(key);
+        if (node == null) return null;
+        unlink(node);
+        return node.value;
+    }
+
+    private void moveToHead(Node<V> node) {
+        if (node == head) return;
+        unlink(node);
+        linkHead(node);
+    }
+
+    private void linkHead(Node<V> node) {
+        node.prev = null;
+        node.next = head;
+        if (head != null) head.prev = node;
+        head = node;
+        if (tail == null) tail = node;
+    }
+
+    private void unlink(Node<V> node) {
+        if (node.prev != null) node.prev.next = node.next; else head = node.next;
+        if (node.next != null) node.next.prev = node.prev; else tail = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        nodes.clear();
+        head = null;
+        tail = null;
+    }
+}
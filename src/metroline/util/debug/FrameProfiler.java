@@ -0,0 +1,216 @@
+package metroline.util.debug;
+
+import metroline.util.MetroLogger;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Per-phase frame timer for the debug overlay.
+ * A frame is split into consecutive phases: {@link #mark(Phase)} charges the time since the
+ * previous mark to a phase. The last {@link #WINDOW} frames are kept in ring buffers, the overlay
+ * shows rolling p50/p95/p99 per phase and the bytes allocated by the painting thread per frame.
+ * Recording allocates nothing; percentiles are only computed when the overlay is drawn.
+ * @author Tesmio
+ */
+public class FrameProfiler {
+    public static final int WINDOW = 256;
+    private static final long TARGET_FRAME_NANOS = 16_666_667L; // 60 FPS
+
+    public enum Phase {
+        PREPARE("Prepare"),
+        STATIC("Static blit"),
+        WATER("Water"),
+        RIVERS("Rivers"),
+        TUNNELS("Tunnels"),
+        STATIONS("Stations"),
+        SELECTIONS("Selections"),
+        LABELS("Labels"),
+        COMPOSITE("Composite"),
+        UI("UI");
+
+        private final String title;
+
+        Phase(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long[][] phaseNanos = new long[PHASES.length][WINDOW];
+    private final long[] frameNanos = new long[WINDOW];
+    private final long[] frameAllocated = new long[WINDOW];
+    private final long[] frameStarted = new long[WINDOW];
+    private final long[] current = new long[PHASES.length];
+    private final long[] scratch = new long[WINDOW];
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    private int cursor;
+    private int count;
+    private long frameStart;
+    private long checkpoint;
+    private long allocatedAtStart;
+    private long frameNumber;
+
+    public FrameProfiler() {
+        com.sun.management.ThreadMXBean bean = null;
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            bean = (com.sun.management.ThreadMXBean) threadBean;
+            try {
+                if (bean.isThreadAllocatedMemorySupported()) {
+                    bean.setThreadAllocatedMemoryEnabled(true);
+                } else {
+                    bean = null;
+                }
+            } catch (UnsupportedOperationException e) {
+                bean = null;
+            }
+        }
+        this.allocationBean = bean;
+    }
+
+    private long allocatedBytes() {
+        return allocationBean != null ? allocationBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    public void beginFrame() {
+        frameStart = System.nanoTime();
+        checkpoint = frameStart;
+        allocatedAtStart = allocatedBytes();
+        Arrays.fill(current, 0);
+    }
+
+    /**
+     * Charges the time since the previous mark to a phase
+     * @param phase Phase that just finished
+     */
+    public void mark(Phase phase) {
+        long now = System.nanoTime();
+        current[phase.ordinal()] += now - checkpoint;
+        checkpoint = now;
+    }
+
+    public void endFrame() {
+        long now = System.nanoTime();
+        for (int p = 0; p < PHASES.length; p++) {
+            phaseNanos[p][cursor] = current[p];
+        }
+        frameNanos[cursor] = now - frameStart;
+        long allocated = allocatedBytes();
+        frameAllocated[cursor] = allocated >= 0 && allocatedAtStart >= 0 ? allocated - allocatedAtStart : -1;
+        frameStarted[cursor] = frameNumber++;
+        cursor = (cursor + 1) % WINDOW;
+        count = Math.min(count + 1, WINDOW);
+    }
+
+    private long percentile(long[] samples, double q) {
+        if (count == 0) return 0;
+        System.arraycopy(samples, 0, scratch, 0, count);
+        Arrays.sort(scratch, 0, count);
+        int index = (int) Math.ceil(q * count) - 1;
+        return scratch[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    /**
+     * Builds the overlay text: percentiles of every phase and of the whole frame
+     * @return Lines for the debug overlay
+     */
+    public String[] getOverlayLines() {
+        String[] lines = new String[PHASES.length + 4];
+        int i = 0;
+        lines[i++] = String.format("%-11s %7s %7s %7s", "Phase (us)", "p50", "p95", "p99");
+        for (Phase phase : PHASES) {
+            long[] samples = phaseNanos[phase.ordinal()];
+            lines[i++] = String.format("%-11s %7d %7d %7d", phase.getTitle(),
+                    percentile(samples, 0.50) / 1000, percentile(samples, 0.95) / 1000,
+                    percentile(samples, 0.99) / 1000);
+        }
+        lines[i++] = String.format("%-11s %7d %7d %7d", "Frame",
+                percentile(frameNanos, 0.50) / 1000, percentile(frameNanos, 0.95) / 1000,
+                percentile(frameNanos, 0.99) / 1000);
+        if (allocationBean == null) {
+            lines[i++] = "Alloc/frame: unsupported";
+        } else {
+            lines[i++] = String.format("Alloc/frame: p50 %d KB, p99 %d KB",
+                    percentile(frameAllocated, 0.50) / 1024, percentile(frameAllocated, 0.99) / 1024);
+        }
+        lines[i] = String.format("Window: %d frames (Ctrl+P - CSV)", count);
+        return lines;
+    }
+
+    /**
+     * Draws frame times of the window as bars, oldest on the left, with the 60 FPS budget line
+     */
+    public void drawFrameGraph(Graphics2D g, int x, int y, int width, int height) {
+        Color oldColor = g.getColor();
+        g.setColor(new Color(0, 0, 0, 150));
+        g.fillRect(x, y, width, height);
+
+        long scale = Math.max(TARGET_FRAME_NANOS * 2, percentile(frameNanos, 0.99));
+        float barWidth = width / (float) WINDOW;
+        for (int n = 0; n < count; n++) {
+            int index = (cursor - count + n + WINDOW) % WINDOW;
+            long nanos = frameNanos[index];
+            int barHeight = (int) Math.min(height, nanos * height / scale);
+            g.setColor(nanos > TARGET_FRAME_NANOS ? new Color(230, 80, 60) : new Color(90, 200, 90));
+            int barX = x + (int) (n * barWidth);
+            g.fillRect(barX, y + height - barHeight, Math.max(1, (int) barWidth), barHeight);
+        }
+
+        int budgetY = y + height - (int) (TARGET_FRAME_NANOS * height / scale);
+        g.setColor(Color.YELLOW);
+        g.drawLine(x, budgetY, x + width, budgetY);
+        g.setColor(oldColor);
+    }
+
+    /**
+     * Writes the frames of the window to a CSV file, one row per frame, times in microseconds
+     * @param directory Target directory, created if missing
+     * @return Written file or null on error
+     */
+    public File dumpCsv(File directory) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            MetroLogger.logError("[FrameProfiler] Cannot create " + directory);
+            return null;
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = new File(directory, "frame-profile-" + stamp + ".csv");
+
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            StringBuilder header = new StringBuilder("frame,total_us");
+            for (Phase phase : PHASES) {
+                header.append(',').append(phase.name().toLowerCase()).append("_us");
+            }
+            header.append(",alloc_bytes");
+            out.println(header);
+
+            for (int n = 0; n < count; n++) {
+                int index = (cursor - count + n + WINDOW) % WINDOW;
+                StringBuilder row = new StringBuilder();
+                row.append(frameStarted[index]).append(',').append(frameNanos[index] / 1000);
+                for (int p = 0; p < PHASES.length; p++) {
+                    row.append(',').append(phaseNanos[p][index] / 1000);
+                }
+                row.append(',').append(frameAllocated[index]);
+                out.println(row);
+            }
+        } catch (IOException e) {
+            MetroLogger.logError("[FrameProfiler] Cannot write " + file, e);
+            return null;
+        }
+        MetroLogger.logInfo("[FrameProfiler] Frame profile saved to " + file.getAbsolutePath());
+        return file;
+    }
+}
@@ -24,6 +24,9 @@ public class GlobalSettings {
     private static final String KEY_PNG_SCALE = "png_scale";
     private static final int DEFAULT_PNG_SCALE = 2;
 
+    private static final String KEY_FPS_CAP = "fps_cap";
+    private static final int DEFAULT_FPS_CAP = 0; // 0 - перерисовка только по запросу
+
     private static Properties properties;
 
     static {
@@ -79,6 +82,28 @@ public class GlobalSettings {
         properties.setProperty(KEY_PNG_SCALE, String.valueOf(scale));
         save();
     }
+    // ================ FPS CAP ================
+
+    /**
+     * Gets the frame cap of the world screen
+     * @return Frames per second, 0 to repaint only on input and animation
+     */
+    public static int getFpsCap() {
+        String value = properties.getProperty(KEY_FPS_CAP);
+        if (value != null) {
+            try {
+                return Math.max(0, Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                MetroLogger.logWarning("[GlobalSettings] Invalid FPS cap: " + value);
+            }
+        }
+        return DEFAULT_FPS_CAP;
+    }
+
+    public static void setFpsCap(int fpsCap) {
+        properties.setProperty(KEY_FPS_CAP, String.valueOf(fpsCap));
+        save();
+    }
     // ================ SFX/UI ================
 
     public static float getSfxVolume() {
@@ -128,6 +153,7 @@ public class GlobalSettings {
             if (!properties.containsKey(KEY_MUSIC_VOLUME)) setFloatProperty(KEY_MUSIC_VOLUME, DEFAULT_MUSIC_VOLUME);
             if (!properties.containsKey(KEY_SFX_VOLUME)) setFloatProperty(KEY_SFX_VOLUME, DEFAULT_SFX_VOLUME);
             if (!properties.containsKey(KEY_PNG_SCALE)) properties.setProperty(KEY_PNG_SCALE, String.valueOf(DEFAULT_PNG_SCALE));
+            if (!properties.containsKey(KEY_FPS_CAP)) properties.setProperty(KEY_FPS_CAP, String.valueOf(DEFAULT_FPS_CAP));
             if (!properties.containsKey(KEY_LANGUAGE)) properties.setProperty(KEY_LANGUAGE, DEFAULT_LANGUAGE);
         } catch (IOException e) {
             MetroLogger.logError("Cannot load global settings: " + e.getMessage());
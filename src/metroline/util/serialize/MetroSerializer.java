@@ -4,6 +4,8 @@ import metroline.objects.enums.*;
 import metroline.objects.gameobjects.*;
 import metroline.core.world.GameWorld;
 import metroline.core.world.tiles.GameTile;
+import metroline.core.world.tiles.TerrainLayer;
+import metroline.core.world.tiles.WorldChunks;
 import metroline.core.world.tiles.WorldTile;
 
 import java.awt.*;
@@ -42,6 +44,8 @@ public class MetroSerializer {
      * @throws IOException Если возникает ошибка при записи файла.
      */
     public void saveWorld(GameWorld world, String filename) throws IOException {
+        // Типы станций должны быть актуальны до записи
+        world.flushDirtyStations();
         File saveDir = new File(SAVE_FOLDER);
         if (!saveDir.exists()) {
             saveDir.mkdirs();
@@ -58,18 +62,29 @@ public class MetroSerializer {
             writer.write("width:" + world.getWidth() + "\n");
             writer.write("height:" + world.getHeight() + "\n");
             writer.write("roundStations:" + world.isRoundStationsEnabled() + "\n");
+            writer.write("seed:" + world.getSeed() + "\n");
             writer.write("worldColor:" + Integer.toHexString(metroline.core.world.tiles.WorldTile.getStaticBaseTileColor().getRGB() & 0xFFFFFF) + "\n");
 
             // Мир (worldGrid)
+            // Пустые чанки (земля по умолчанию) не пишутся - загрузчик оставит их по умолчанию
             writer.write("worldGrid:[\n");
-            for (int y = 0; y < world.getHeight(); y++) {
-                for (int x = 0; x < world.getWidth(); x++) {
-                    WorldTile tile = world.getWorldTile(x, y);
-                    writer.write(String.format(
-                            "{x:%d,y:%d,isWater:%b}\n",
-                            x, y,
-                            tile.isWater()
-                    ));
+            TerrainLayer terrain = world.getTerrain();
+            for (int cy = 0; cy < terrain.getChunksY(); cy++) {
+                int y0 = cy * WorldChunks.CHUNK_SIZE;
+                int y1 = Math.min(world.getHeight(), y0 + WorldChunks.CHUNK_SIZE);
+                for (int cx = 0; cx < terrain.getChunksX(); cx++) {
+                    if (!terrain.isChunkAllocated(cx, cy)) continue;
+                    int x0 = cx * WorldChunks.CHUNK_SIZE;
+                    int x1 = Math.min(world.getWidth(), x0 + WorldChunks.CHUNK_SIZE);
+                    for (int y = y0; y < y1; y++) {
+                        for (int x = x0; x < x1; x++) {
+                            writer.write(String.format(
+                                    "{x:%d,y:%d,isWater:%b}\n",
+                                    x, y,
+                                    terrain.isWater(terrain.index(x, y))
+                            ));
+                        }
+                    }
                 }
             }
             writer.write("]\n");
@@ -167,20 +182,21 @@ public class MetroSerializer {
 
             // Игровая сетка (gameGrid)
             writer.write("gameGrid:[\n");
-            GameTile[] gameGrid = world.getGameGrid();
-            for (int i = 0; i < gameGrid.length; i++) {
-                GameTile tile = gameGrid[i];
-                if (tile != null) {
-                    int x = i % world.getWidth();
-                    int y = i / world.getWidth();
-                    GameObject content = tile.getContent();
-                    writer.write(String.format(
+            // Только занятые клетки из выделенных чанков
+            StringBuilder gridOut = new StringBuilder();
+            world.getGameGrid().forEachTile(tile -> {
+                GameObject content = tile.getContent();
+                if (content != null) {
+                    int x = tile.getX();
+                    int y = tile.getY();
+                    gridOut.append(String.format(
                             "{index:%d,x:%d,y:%d,content:%s}\n",
-                            i, x, y,
-                            content != null ? ParsingUtils.serializeGameObject(content) : "null"
+                            y * world.getWidth() + x, x, y,
+                            ParsingUtils.serializeGameObject(content)
                     ));
                 }
-            }
+            });
+            writer.write(gridOut.toString());
             writer.write("]\n");
 
             // Custom line names
@@ -270,6 +286,14 @@ public class MetroSerializer {
                 }
                 continue;
             }
+            if (line.startsWith("seed:")) {
+                try {
+                    gameWorld.setSeed(Long.parseLong(line.substring("seed:".length())));
+                } catch (NumberFormatException e) {
+                    System.err.println("[MetroSerializer::recreateWorld] Error parsing seed: " + line);
+                }
+                continue;
+            }
             if (line.startsWith("roundStations:")) {
                 gameWorld.roundStationsEnabled = Boolean.parseBoolean(line.substring("roundStations:".length()));
                 continue;
@@ -316,6 +340,7 @@ public class MetroSerializer {
                     if (station != null) {
                         stationIdMap.put(station.getUniqueId(), station);
                         gameWorld.stations.add(station);
+                        gameWorld.registerObject(station);
                     }
                 }
                 continue;
@@ -334,6 +359,7 @@ public class MetroSerializer {
                     Tunnel tunnel = ParsingUtils.parseTunnel(line, gameWorld, stationIdMap);
                     if (tunnel != null) {
                         gameWorld.tunnels.add(tunnel);
+                        gameWorld.registerObject(tunnel);
                     }
                 }
                 continue;
@@ -351,9 +377,10 @@ public class MetroSerializer {
                     StationLabel stationLabel = ParsingUtils.parseLabel(line, gameWorld, stationIdMap);
                     if (stationLabel != null) {
                         gameWorld.stationLabels.add(stationLabel);
-                        int index = stationLabel.getX() + stationLabel.getY() * gameWorld.getWidth();
-                        if (index < gameWorld.gameGrid.length) {
-                            gameWorld.gameGrid[index].setContent(stationLabel);
+                        gameWorld.registerObject(stationLabel);
+                        GameTile tile = gameWorld.getOrCreateGameTile(stationLabel.getX(), stationLabel.getY());
+                        if (tile != null) {
+                            tile.setContent(stationLabel);
                         }
                     }
                 }
@@ -364,6 +391,7 @@ public class MetroSerializer {
                     River river = ParsingUtils.parseRiver(line, gameWorld);
                     if (river != null) {
                         gameWorld.rivers.add(river);
+                        gameWorld.registerObject(river);
                     }
                 }
                 continue;
@@ -400,8 +428,10 @@ public class MetroSerializer {
 
                         if (!contentStr.equals("null")) {
                             GameObject obj = ParsingUtils.parseGameObject(contentStr, gameWorld, stationIdMap);
-                            if (obj != null && gameWorld.gameGrid != null && index < gameWorld.gameGrid.length) {
-                                gameWorld.gameGrid[index].setContent(obj);
+                            GameTile tile = gameWorld.gameGrid == null ? null
+                                    : gameWorld.getOrCreateGameTile(index % gameWorld.getWidth(), index / gameWorld.getWidth());
+                            if (obj != null && tile != null) {
+                                tile.setContent(obj);
                             }
                         }
                     } catch (Exception e) {
@@ -412,5 +442,6 @@ public class MetroSerializer {
                 continue;
             }
         }
+        gameWorld.rebuildIndexes();
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package metroline.util.serialize;
 
 import metroline.core.world.GameWorld;
+import metroline.core.world.tiles.GameTile;
 import metroline.objects.enums.*;
 import metroline.objects.gameobjects.*;
 
@@ -111,11 +112,7 @@ public class ParsingUtils {
             case "label" -> {
                 try {
                     long labelId = Long.parseLong(value);
-                    for (StationLabel stationLabel : world.getLabels()) {
-                        if (stationLabel.getUniqueId() == labelId) {
-                            yield stationLabel;
-                        }
-                    }
+                    yield world.getObjectRegistry().get(labelId, StationLabel.class);
                 } catch (NumberFormatException e) {
                     System.err.println("Ошибка при парсинге ID метки: " + value);
                 }
@@ -137,11 +134,7 @@ public class ParsingUtils {
             case "riverpoint" -> {
                 try {
                     long riverPointId = Long.parseLong(value);
-                    for (RiverPoint riverPoint : world.getRiverPoints()) {
-                        if (riverPoint.getUniqueId() == riverPointId) {
-                            yield riverPoint;
-                        }
-                    }
+                    yield world.getObjectRegistry().get(riverPointId, RiverPoint.class);
                 } catch (NumberFormatException e) {
                     System.err.println("Error parsing RiverPoint ID: " + value);
                 }
@@ -278,13 +271,7 @@ public class ParsingUtils {
         }
 
         // Find river by ID
-        River targetRiver = null;
-        for (River river : world.getRivers()) {
-            if (river.getUniqueId() == riverId) {
-                targetRiver = river;
-                break;
-            }
-        }
+        River targetRiver = world.getObjectRegistry().get(riverId, River.class);
 
         if (targetRiver == null) {
             System.err.println("[ParsingUtils::parseRiverPoint] River not found for id: " + riverId);
@@ -553,9 +540,9 @@ public class ParsingUtils {
                 parent.setLabel(stationLabel);
                 stationLabel.setParentGameObject(parent);
 
-                int index = x + y * world.getWidth();
-                if (index < world.gameGrid.length) {
-                    world.gameGrid[index].setContent(stationLabel);
+                GameTile tile = world.getOrCreateGameTile(x, y);
+                if (tile != null) {
+                    tile.setContent(stationLabel);
                 }
 
                 return stationLabel;
@@ -698,6 +685,7 @@ public class ParsingUtils {
                     System.err.println("Ошибка при парсинге координат точки пути: " + pointStr);
                 }
             }
+            world.onTunnelPathChanged(tunnel);
         } else if (tunnel == null) {
             System.err.println("Туннель не найден для точек пути: startId=" + startId + ", endId=" + endId);
         }